@@ -0,0 +1,137 @@
+// Adversary.java
+
+package com.coolcompany.jtetris;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Picks the piece the brain would least like to get next: the one
+ * whose best play scores worst. The seven bestMove() searches run in
+ * parallel on a fork-join pool, each on its own copy of the board, and
+ * the choice is remembered by Board.getHash() -- a board seen before
+ * costs a map lookup. The cache keeps the most recently used boards,
+ * up to a fixed number. The hash does not cover the board's size, so
+ * an adversary should only ever see boards of one size.
+ * <p>
+ * The brain is called from several threads at once, so it must not
+ * keep state in fields between calls (DefaultBrain does not). The
+ * adversary itself is meant to be used from one thread.
+ */
+public class Adversary {
+
+	public static final int DEFAULT_CACHE_SIZE = 4096;
+
+	private final Brain brain;
+	protected final int limitHeight;
+	private final ForkJoinPool pool;
+	private final Map<Long, Integer> cache;
+
+
+	/**
+	 * Creates an adversary against brain on the common fork-join pool.
+	 */
+	public Adversary(Brain brain, int limitHeight) {
+		this(brain, limitHeight, ForkJoinPool.commonPool(), DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Creates an adversary against brain on the given pool, remembering
+	 * its choice for up to cacheSize boards.
+	 */
+	public Adversary(Brain brain, int limitHeight, ForkJoinPool pool, final int cacheSize) {
+		this.brain = brain;
+		this.limitHeight = limitHeight;
+		this.pool = pool;
+		this.cache = new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the index in Piece.getPieces() of the piece whose best
+	 * play on board scores worst. If no piece has a play the game is
+	 * lost anyway, and 0 is returned. If the thread is interrupted it
+	 * throws CancellationException and caches nothing.
+	 */
+	public int pick(Board board) {
+		Long hash = board.getHash();
+		Integer index = this.cache.get(hash);
+		if (index == null) {
+			index = choose(board);
+			// the pool may have run some of the searches on this thread
+			if (Thread.currentThread().isInterrupted()) throw new CancellationException("interrupted");
+			this.cache.put(hash, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Works out the choice pick() caches -- here, the piece whose best
+	 * single play scores worst. Subclasses can look further ahead.
+	 */
+	protected int choose(Board board) {
+		return worstPiece(rateAll(board));
+	}
+
+	/**
+	 * Records the brain's answers for each piece on board, worked out
+	 * elsewhere, so a later pick() on it is free. Returns the same
+	 * index pick() would.
+	 */
+	public int remember(Board board, Move[] moves) {
+		int index = worstPiece(moves);
+		this.cache.put(board.getHash(), index);
+		return index;
+	}
+
+	/**
+	 * Runs the brain for each piece on its own copy of board, in
+	 * parallel, and returns the answers in Piece.getPieces() order,
+	 * null where a piece has no play.
+	 */
+	public Move[] rateAll(final Board board) {
+		final Piece[] pieces = Piece.getPieces();
+		final Move[] moves = new Move[pieces.length];
+		this.pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				RecursiveAction[] tasks = new RecursiveAction[pieces.length];
+				for (int i = 0; i < pieces.length; i++) {
+					final int piece = i;
+					tasks[i] = new RecursiveAction() {
+						@Override
+						protected void compute() {
+							moves[piece] = brain.bestMove(new Board(board), pieces[piece], limitHeight, null);
+						}
+					};
+				}
+				ForkJoinTask.invokeAll(tasks);
+			}
+		});
+		return moves;
+	}
+
+	/**
+	 * Returns the index of the highest scoring move, skipping nulls,
+	 * or 0 if they are all null. Ties go to the lower index.
+	 */
+	public static int worstPiece(Move[] moves) {
+		int pieceIndex = 0;
+		double score = -1;
+		for (int i = 0; i < moves.length; i++) {
+			if (moves[i] != null && moves[i].score > score) {
+				score = moves[i].score;
+				pieceIndex = i;
+			}
+		}
+		return pieceIndex;
+	}
+}
@@ -0,0 +1,101 @@
+// AnytimeBrain.java
+
+package com.coolcompany.jtetris;
+
+/**
+ * An ExpectimaxBrain that searches as deep as a deadline allows.
+ * bestMove() first finds DefaultBrain's play, which is cheap and always
+ * completes, then runs the expectimax search one, two, ... chance
+ * layers deep, keeping the answer of the deepest search that finished.
+ * A search still running when the deadline passes is dropped, so the
+ * call returns within about a chance node's work of the deadline
+ * however deep the brain is allowed to go.
+ * <p>
+ * The transposition table carries values from each depth to the next
+ * and from one decision to the next, so the shallow searches mostly
+ * pay for themselves.
+ */
+public class AnytimeBrain extends ExpectimaxBrain {
+
+	public static final int DEFAULT_MAX_DEPTH = 3;
+	public static final long DEFAULT_TIME_BUDGET = 10000000L;    // 10ms
+
+	private final int maxDepth;
+	private long timeBudget = DEFAULT_TIME_BUDGET;
+	private int lastDepth;
+
+
+	/**
+	 * Creates a brain that goes up to DEFAULT_MAX_DEPTH chance layers
+	 * deep within DEFAULT_TIME_BUDGET per decision.
+	 */
+	public AnytimeBrain() {
+		this(DEFAULT_MAX_DEPTH, DEFAULT_TABLE_BITS);
+	}
+
+	/**
+	 * Creates a brain that goes up to maxDepth chance layers deep,
+	 * with a transposition table of 2^tableBits entries.
+	 */
+	public AnytimeBrain(int maxDepth, int tableBits) {
+		super(0, tableBits);
+		if (maxDepth < 0) throw new IllegalArgumentException("max depth must not be negative: " + maxDepth);
+		this.maxDepth = maxDepth;
+	}
+
+	public int getMaxDepth() {
+		return this.maxDepth;
+	}
+
+	/**
+	 * Sets the time bestMove() may take, in nanoseconds.
+	 */
+	public void setTimeBudget(long nanos) {
+		if (nanos < 0) throw new IllegalArgumentException("time budget must not be negative: " + nanos);
+		this.timeBudget = nanos;
+	}
+
+	/**
+	 * Returns the depth of the search that gave the last answer.
+	 */
+	public int getLastDepth() {
+		return this.lastDepth;
+	}
+
+	/**
+	 * Same contract as DefaultBrain.bestMove(), answering within the
+	 * time budget.
+	 */
+	@Override
+	public Move bestMove(Board board, Piece piece, int limitHeight, Move move) {
+		return bestMove(board, piece, limitHeight, move, System.nanoTime() + this.timeBudget);
+	}
+
+	/**
+	 * Same contract as DefaultBrain.bestMove(), answering by deadline,
+	 * a System.nanoTime() value. The score in the returned move comes
+	 * from the deepest search that finished.
+	 */
+	public Move bestMove(Board board, Piece piece, int limitHeight, Move move, long deadline) {
+		// Allocate a move object if necessary
+		if (move == null) move = new Move();
+
+		this.lastDepth = 0;
+		if (!search(board, piece, limitHeight, 0, NO_DEADLINE, move)) {
+			checkInterrupted();
+			return (null);    // could not find a play at all!
+		}
+
+		Move deeper = new Move();
+		for (int depth = 1; depth <= this.maxDepth && System.nanoTime() - deadline < 0; depth++) {
+			if (!search(board, piece, limitHeight, depth, deadline, deeper)) break;
+			move.x = deeper.x;
+			move.y = deeper.y;
+			move.piece = deeper.piece;
+			move.score = deeper.score;
+			this.lastDepth = depth;
+		}
+		checkInterrupted();    // not just out of time
+		return (move);
+	}
+}
@@ -0,0 +1,165 @@
+// BeamBrain.java
+
+package com.coolcompany.jtetris;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A DefaultBrain that searches a sequence of known pieces with a beam.
+ * bestMove() plays the current piece every possible way, keeps the
+ * width best boards, plays the next piece every possible way on each
+ * of those, keeps the width best again, and so on for depth pieces.
+ * The play of the current piece that leads to the best board in the
+ * last beam is the one returned.
+ * <p>
+ * Children that come out as the same board -- the same cells reached
+ * by different plays -- are merged using Board.getHash(), keeping the
+ * first. Children are rated with place()/undo() on their parent and
+ * only the survivors are copied, so each ply costs width board copies
+ * however many plays there are. With depth 1, or no next pieces set,
+ * it plays exactly like DefaultBrain.
+ */
+public class BeamBrain extends DefaultBrain {
+
+	public static final int DEFAULT_WIDTH = 16;
+	public static final int DEFAULT_DEPTH = 3;
+
+	private final int width;
+	private final int depth;
+	private Piece[] nextPieces = new Piece[0];
+
+
+	/**
+	 * Creates a brain with a beam DEFAULT_WIDTH boards wide
+	 * looking DEFAULT_DEPTH pieces deep.
+	 */
+	public BeamBrain() {
+		this(DEFAULT_WIDTH, DEFAULT_DEPTH);
+	}
+
+	/**
+	 * Creates a brain keeping width boards per ply and looking depth
+	 * pieces deep, the current piece included.
+	 */
+	public BeamBrain(int width, int depth) {
+		if (width < 1) throw new IllegalArgumentException("beam width must be positive: " + width);
+		if (depth < 1) throw new IllegalArgumentException("beam depth must be positive: " + depth);
+		this.width = width;
+		this.depth = depth;
+	}
+
+	public int getWidth() {
+		return this.width;
+	}
+
+	public int getDepth() {
+		return this.depth;
+	}
+
+	/**
+	 * Sets the queue of pieces known to come after the one passed to
+	 * bestMove(), soonest first. The search goes as deep as the queue
+	 * allows, up to the depth.
+	 */
+	public void setNextPieces(Piece... pieces) {
+		this.nextPieces = pieces.clone();
+	}
+
+	/**
+	 * Same contract as DefaultBrain.bestMove(). The score in the
+	 * returned move is the rating of the best board in the deepest
+	 * beam reached. Plies where no board has room for the piece end
+	 * the search early.
+	 */
+	@Override
+	public Move bestMove(Board board, Piece piece, int limitHeight, Move move) {
+		// Allocate a move object if necessary
+		if (move == null) move = new Move();
+
+		board.commit();
+
+		List<Node> beam = new ArrayList<Node>();
+		beam.add(new Node(board, null, 0, 0));
+		int plies = Math.min(this.depth, 1 + this.nextPieces.length);
+		for (int ply = 0; ply < plies; ply++) {
+			Piece current = (ply == 0) ? piece : this.nextPieces[ply - 1];
+			List<Child> children = expand(beam, current, limitHeight);
+			if (children.isEmpty()) break;
+
+			// stable, so equal scores stay in the order they were found
+			Collections.sort(children);
+			List<Node> next = new ArrayList<Node>(Math.min(children.size(), this.width));
+			for (int i = 0; i < children.size() && i < this.width; i++) {
+				Child child = children.get(i);
+				Board copy = new Board(child.parent.board);
+				if (copy.place(child.placement, child.y) == Board.PLACE_ROW_FILLED) copy.clearRows();
+				copy.commit();
+				if (ply == 0) next.add(new Node(copy, child.placement, child.y, child.score));
+				else next.add(new Node(copy, child.parent.first, child.parent.firstY, child.score));
+			}
+			beam = next;
+		}
+
+		checkInterrupted();
+		Node best = beam.get(0);
+		if (best.first == null) return (null);    // could not find a play at all!
+		move.x = best.first.x;
+		move.y = best.firstY;
+		move.piece = best.first.piece;
+		move.score = best.score;
+		return (move);
+	}
+
+	// Rates every play of piece on every board in the beam, merging equal boards
+	private List<Child> expand(List<Node> beam, Piece piece, int limitHeight) {
+		final List<Child> children = new ArrayList<Child>();
+		final Set<Long> seen = new HashSet<Long>();
+		for (Node node : beam) {
+			forEachPlay(node.board, piece, limitHeight, (b, placement, y, filled) -> {
+				double score = ratePlay(b, placement.piece, placement.x, y, filled);    // clears the rows
+				if (seen.add(b.getHash()))
+					children.add(new Child(node, placement, y, score));
+				return true;
+			});
+		}
+		return children;
+	}
+
+	// A board in the beam, and the play of the first piece it came from
+	private static class Node {
+		final Board board;
+		final Placement first;
+		final int firstY;
+		final double score;
+
+		Node(Board board, Placement first, int firstY, double score) {
+			this.board = board;
+			this.first = first;
+			this.firstY = firstY;
+			this.score = score;
+		}
+	}
+
+	// A rated play on a beam board, not yet copied out
+	private static class Child implements Comparable<Child> {
+		final Node parent;
+		final Placement placement;
+		final int y;
+		final double score;
+
+		Child(Node parent, Placement placement, int y, double score) {
+			this.parent = parent;
+			this.placement = placement;
+			this.y = y;
+			this.score = score;
+		}
+
+		public int compareTo(Child other) {
+			return Double.compare(this.score, other.score);
+		}
+	}
+}
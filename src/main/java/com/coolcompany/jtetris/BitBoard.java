@@ -0,0 +1,305 @@
+// BitBoard.java
+package com.coolcompany.jtetris;
+
+import java.util.Arrays;
+
+/**
+ * A Tetris board that stores each row as a packed int bitmask
+ * instead of one boolean per cell. Bit x of a row is set when
+ * the block (x, y) is filled, so collision tests, full-row checks
+ * and row clearing are a handful of bitwise operations per row.
+ * <p>
+ * Behaves exactly like {@link Board} -- same place() result codes,
+ * same one level undo()/commit() -- so the two are interchangeable
+ * behind the BoardAPI. Boards are limited to {@link #MAX_WIDTH} columns.
+ */
+public class BitBoard implements BoardAPI {
+
+	static final int MAX_WIDTH = 32;
+
+	boolean committed;
+	private int width;
+	private int height;
+	private int fullRow;    // mask with all width bits set
+	private int[] rows;
+	private int[] columns;
+	private int maxHeight;
+
+	private int[] backupRows;
+	private int[] backupColumns;
+	private int backupHeight;
+
+
+	/**
+	 * Creates an empty board of the given width and height
+	 * measured in blocks.
+	 */
+	public BitBoard(int width, int height) {
+		if (width < 1 || width > MAX_WIDTH)
+			throw new IllegalArgumentException("bitboard width must be 1.." + MAX_WIDTH + ": " + width);
+		this.width = width;
+		this.height = height;
+		fullRow = (width == MAX_WIDTH) ? -1 : (1 << width) - 1;
+		committed = true;
+		rows = new int[height];
+		backupRows = new int[height];
+		columns = new int[width];
+		backupColumns = new int[width];
+		maxHeight = 0;
+		backupHeight = 0;
+	}
+
+	/**
+	 * Returns the width of the board in blocks.
+	 */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * Returns the height of the board in blocks.
+	 */
+	public int getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * Returns the max column height present in the board.
+	 * For an empty board this is 0.
+	 */
+	public int getMaxHeight() {
+		return this.maxHeight;
+	}
+
+	/**
+	 * Given a piece and an x, returns the y
+	 * value where the piece would come to rest
+	 * if it were dropped straight down at that x.
+	 * Same skirt/column heights computation as Board.
+	 */
+	public int dropHeight(Piece piece, int x) {
+		int[] skirt = piece.getSkirt();
+		int height = 0;
+		for (int i = 0; i < skirt.length; i++) {
+			if (x + i >= this.width) break;
+			if ((this.columns[x + i] - skirt[i]) > height)
+				height = this.columns[x + i] - skirt[i];
+		}
+		return height;
+	}
+
+	/**
+	 * Same as dropHeight(piece, x) for a precomputed placement.
+	 */
+	public int dropHeight(Placement placement) {
+		int[] skirt = placement.skirt;
+		int x = placement.x;
+		int height = 0;
+		for (int i = 0; i < skirt.length; i++) {
+			if ((this.columns[x + i] - skirt[i]) > height)
+				height = this.columns[x + i] - skirt[i];
+		}
+		return height;
+	}
+
+	/**
+	 * Batch version of dropHeight() -- stores the drop height of the
+	 * piece at every legal x (0 .. width - piece width) into heights,
+	 * which must have room for width entries, and returns how many
+	 * x values there were.
+	 * <p>
+	 * Implementation: one pass over the column heights per skirt
+	 * entry, each a simple loop over x, instead of a separate skirt
+	 * walk for every x.
+	 */
+	public int dropHeights(Piece piece, int[] heights) {
+		int[] skirt = piece.getSkirt();
+		int count = this.width - skirt.length + 1;
+		for (int x = 0; x < count; x++)
+			heights[x] = 0;
+		for (int i = 0; i < skirt.length; i++) {
+			final int s = skirt[i];
+			for (int x = 0; x < count; x++) {
+				int h = this.columns[x + i] - s;
+				if (h > heights[x])
+					heights[x] = h;
+			}
+		}
+		return Math.max(count, 0);
+	}
+
+	/**
+	 * Returns the height of the given column --
+	 * i.e. the y value of the highest block + 1.
+	 */
+	public int getColumnHeight(int x) {
+		return this.columns[x];
+	}
+
+	/**
+	 * Returns the number of filled blocks in
+	 * the given row.
+	 */
+	public int getRowWidth(int y) {
+		return Integer.bitCount(this.rows[y]);
+	}
+
+	/**
+	 * Returns the bitmask of row y -- bit x is set when (x, y) is filled.
+	 */
+	int getRowMask(int y) {
+		return this.rows[y];
+	}
+
+	/**
+	 * Returns true if the given block is filled in the board.
+	 * Blocks outside of the valid width/height area
+	 * always return true.
+	 */
+	public boolean getGrid(int x, int y) {
+		if (x < 0 || x >= this.width || y < 0 || y >= this.height)
+			return true;
+		return ((this.rows[y] >>> x) & 1) != 0;
+	}
+
+	/**
+	 * Attempts to add the body of a piece to the board.
+	 * Returns the same codes as {@link Board#place(Piece, int, int)}.
+	 * The whole piece is collision tested before anything is
+	 * written, so a PLACE_BAD leaves the grid untouched; undo()
+	 * is still needed to get back to the committed state.
+	 */
+	public int place(Piece piece, int x, int y) {
+		if (!this.committed) throw new RuntimeException("place commit problem");
+		this.committed = false;
+
+		if (x < 0 || x + piece.getWidth() > this.width || y < 0)
+			return Board.PLACE_OUT_BOUNDS;
+
+		return placeMasks(piece.getRowMasks(), x, y, piece.getBody(), x);
+	}
+
+	/**
+	 * Same as place(piece, x, y) for a precomputed placement, whose
+	 * row masks are already shifted to its x.
+	 */
+	public int place(Placement placement, int y) {
+		if (!this.committed) throw new RuntimeException("place commit problem");
+		this.committed = false;
+
+		if (y < 0)
+			return Board.PLACE_OUT_BOUNDS;
+		return placeMasks(placement.rowMasks, 0, y, placement.piece.getBody(), placement.x);
+	}
+
+	// Collide and then or in the row masks, shifted by shift, from row y up
+	private int placeMasks(int[] masks, int shift, int y, TPoint[] body, int x) {
+		if (y + masks.length > this.height)
+			return Board.PLACE_BAD;
+		for (int i = 0; i < masks.length; i++) {
+			if ((this.rows[y + i] & (masks[i] << shift)) != 0)
+				return Board.PLACE_BAD;
+		}
+
+		int result = Board.PLACE_OK;
+		for (int i = 0; i < masks.length; i++) {
+			this.rows[y + i] |= masks[i] << shift;
+			if (this.rows[y + i] == this.fullRow)
+				result = Board.PLACE_ROW_FILLED;
+		}
+		for (TPoint p : body) {
+			if (this.columns[p.x + x] < p.y + y + 1)
+				this.columns[p.x + x] = p.y + y + 1;
+		}
+		if (y + masks.length > this.maxHeight)
+			this.maxHeight = y + masks.length;
+		return result;
+	}
+
+	/**
+	 * Deletes rows that are filled all the way across, moving
+	 * things above down. Returns the number of rows cleared.
+	 * Rows are compacted in a single pass, then the column
+	 * heights are rebuilt from the row masks top-down.
+	 */
+	public int clearRows() {
+		int rowsCleared = 0;
+		int to = 0;
+		for (int from = 0; from < this.maxHeight; from++) {
+			if (this.rows[from] == this.fullRow) {
+				rowsCleared++;
+			} else {
+				this.rows[to++] = this.rows[from];
+			}
+		}
+		if (rowsCleared > 0) {
+			Arrays.fill(this.rows, to, this.maxHeight, 0);
+			computeColumns(to);
+		}
+		this.committed = false;
+		return rowsCleared;
+	}
+
+	// Rebuild column heights and max height, scanning down from top
+	private void computeColumns(int top) {
+		Arrays.fill(this.columns, 0);
+		this.maxHeight = 0;
+		int seen = 0;
+		for (int y = top - 1; y >= 0 && seen != this.fullRow; y--) {
+			int fresh = this.rows[y] & ~seen;
+			if (fresh == 0) continue;
+			if (this.maxHeight == 0)
+				this.maxHeight = y + 1;
+			seen |= fresh;
+			while (fresh != 0) {
+				this.columns[Integer.numberOfTrailingZeros(fresh)] = y + 1;
+				fresh &= fresh - 1;
+			}
+		}
+	}
+
+	/**
+	 * Reverts the board to its state before up to one place
+	 * and one clearRows();
+	 * If the conditions for undo() are not met, such as
+	 * calling undo() twice in a row, then the second undo() does nothing.
+	 */
+	public void undo() {
+		if (!this.committed) {
+			this.committed = true;
+			System.arraycopy(this.backupRows, 0, this.rows, 0, this.height);
+			System.arraycopy(this.backupColumns, 0, this.columns, 0, this.width);
+			this.maxHeight = this.backupHeight;
+		}
+	}
+
+	/**
+	 * Puts the board in the committed state.
+	 */
+	public void commit() {
+		if (!this.committed) {
+			this.committed = true;
+			System.arraycopy(this.rows, 0, this.backupRows, 0, this.height);
+			System.arraycopy(this.columns, 0, this.backupColumns, 0, this.width);
+			this.backupHeight = this.maxHeight;
+		}
+	}
+
+	/*
+	 Renders the board state as a big String, in the
+	 same format as Board.toString().
+	 */
+	public String toString() {
+		StringBuilder buff = new StringBuilder();
+		for (int y = this.height - 1; y >= 0; y--) {
+			buff.append('|');
+			for (int x = 0; x < this.width; x++) {
+				if (getGrid(x, y)) buff.append('+');
+				else buff.append(' ');
+			}
+			buff.append("|\n");
+		}
+		for (int x = 0; x < this.width + 2; x++) buff.append('-');
+		return (buff.toString());
+	}
+}
@@ -20,18 +20,55 @@ public class Board implements BoardAPI {
 	boolean committed;
 	private int width;
 	private int height;
-	private boolean[][] grid;
+	private boolean[][] grid;     // grid[row][x], indexed by physical row
 	private boolean DEBUG = false;
 	private int[] colomns;
-	private int[] rows;
+	private int[] rows;           // filled count, indexed by physical row
+	private int[] rowIndex;       // logical y -> physical row in grid/rows
 	private int maxHeight;
 
-
-	// Here a few trivial methods are provided:
-	private boolean[][] backup;
-	private int[] backupColomns;
-	private int[] backupRows;
-	private int backupHeight;
+	// Zobrist hashing -- each physical row keeps the xor of the
+	// column keys of its filled cells, and the board hash is the
+	// xor over y of rowHashes[rowIndex[y]] * rowKeys[y]. Toggling a
+	// cell is O(1); removing or inserting a row rehashes the rows above it.
+	private long[] columnKeys;
+	private long[] rowKeys;
+	private long[] rowHashes;     // indexed by physical row
+	private long fullRowHash;
+	private long hash;
+
+	// Evaluation features, kept up to date alongside the cells and
+	// column heights so a brain can rate a board in O(1)
+	private int cellCount;        // filled blocks
+	private int sumHeight;        // sum of column heights
+	private int bumpiness;        // sum of |height differences| of neighbour columns
+	private int wellDepth;        // sum over columns of how far they sit below both neighbours
+	private int transitions;      // filled/empty changes along rows, walls count as filled
+	private int usedRows;         // rows with at least one block
+
+
+	// Undo journal -- every change made since the last commit(),
+	// as (op, a, b) int triples, so undo() only has to revert
+	// the cells, columns and rows that actually changed.
+	private static final int LOG_CELL = 0;     // a=x, b=y: cell was filled
+	private static final int LOG_COLUMN = 1;   // a=x, b=old column height
+	private static final int LOG_MAX = 2;      // a=old max height
+	private static final int LOG_CLEAR = 3;    // a=y: full row y was removed, b=rows
+	                                           // removed before it by the same clearRows()
+	private int[] log;
+	private int logSize;
+	private int undoMark;    // journal size undo() rewinds to
+
+	// Snapshot stack -- each frame remembers the journal size,
+	// undo mark and committed flag at pushSnapshot()
+	private int[] frameLog;
+	private int[] frameUndo;
+	private boolean[] frameCommitted;
+	private int depth;
+
+	// Scratch space for clearRows() and its undo, so neither allocates
+	private int[] spareRows;     // physical rows being moved
+	private int[] rowMap;        // old logical y -> new logical y
 
 
 	/**
@@ -41,15 +78,49 @@ public class Board implements BoardAPI {
 	public Board(int width, int height) {
 		this.width = width;
 		this.height = height;
-		grid = new boolean[width][height];
-		backup = new boolean[width][height];
+		grid = new boolean[height][width];
 		committed = true;
 		colomns = new int[width];
-		backupColomns = new int[width];
 		rows = new int[height];
-		backupRows = new int[height];
+		rowIndex = new int[height];
+		for (int y = 0; y < height; y++)
+			rowIndex[y] = y;
+		columnKeys = new long[width];
+		for (int x = 0; x < width; x++) {
+			columnKeys[x] = zobristKey(x);
+			fullRowHash ^= columnKeys[x];
+		}
+		rowKeys = new long[height];
+		for (int y = 0; y < height; y++)
+			rowKeys[y] = zobristKey(~y) | 1;    // odd, so the multiply is reversible
+		rowHashes = new long[height];
+		hash = 0;
+		transitions = 2 * height;    // each empty row is wall|empty...empty|wall
 		maxHeight = 0;
-		backupHeight = 0;
+		log = new int[3 * 64];
+		logSize = 0;
+		undoMark = 0;
+		frameLog = new int[16];
+		frameUndo = new int[16];
+		frameCommitted = new boolean[16];
+		depth = 0;
+		spareRows = new int[height];
+		rowMap = new int[height + 1];
+	}
+
+	/**
+	 * Creates a committed board of the same size, with the
+	 * same blocks filled, as the given board -- for instance
+	 * to play on a position read from a BoardPool.
+	 */
+	public Board(BoardView source) {
+		this(source.getWidth(), source.getHeight());
+		for (int y = 0; y < source.getMaxHeight(); y++) {
+			for (int x = 0; x < this.width; x++) {
+				if (source.getGrid(x, y))
+					addBlock(x, y);
+			}
+		}
 	}
 
 	/**
@@ -92,8 +163,9 @@ public class Board implements BoardAPI {
 				if (tempCols[i] > tempHeight)
 					tempHeight = tempCols[i];
 			}
-			if (!Arrays.equals(tempRows, this.rows)) {
-				throw new RuntimeException("mistake in rows widthes");
+			for (int j = 0; j < this.height; j++) {
+				if (tempRows[j] != getRowWidth(j))
+					throw new RuntimeException("mistake in rows widthes");
 			}
 			if (!Arrays.equals(tempCols, this.colomns)) {
 				throw new RuntimeException("mistake in colomns heights");
@@ -104,6 +176,58 @@ public class Board implements BoardAPI {
 		}
 	}
 
+	/**
+	 * Returns the 64-bit Zobrist hash of the filled cells.
+	 * Boards of the same size with the same blocks filled
+	 * have the same hash, however they got there. It is kept
+	 * up to date by place(), clearRows() and undo(), so reading it is O(1).
+	 */
+	public long getHash() {
+		return this.hash;
+	}
+
+	/**
+	 * Returns the number of holes -- empty blocks that are below
+	 * the top block of their column. O(1): a column of height h
+	 * holding n blocks has h - n holes.
+	 */
+	public int getHoles() {
+		return this.sumHeight - this.cellCount;
+	}
+
+	/**
+	 * Returns the sum of all the column heights.
+	 */
+	public int getSumHeight() {
+		return this.sumHeight;
+	}
+
+	/**
+	 * Returns the bumpiness -- the sum of the absolute height
+	 * differences between neighbouring columns.
+	 */
+	public int getBumpiness() {
+		return this.bumpiness;
+	}
+
+	/**
+	 * Returns the summed well depths -- for each column, how far
+	 * it is below the lower of its two neighbours (the walls
+	 * count as infinitely high), or 0 if it is not below both.
+	 */
+	public int getWellDepth() {
+		return this.wellDepth;
+	}
+
+	/**
+	 * Returns the row transitions -- the number of times a
+	 * filled and an empty block are side by side along a row,
+	 * counting the walls as filled. Empty rows count 0.
+	 */
+	public int getRowTransitions() {
+		return this.transitions - 2 * (this.height - this.usedRows);
+	}
+
 	/**
 	 * Given a piece and an x, returns the y
 	 * value where the piece would come to rest
@@ -124,6 +248,48 @@ public class Board implements BoardAPI {
 		return height;
 	}
 
+	/**
+	 * Same as dropHeight(piece, x) for a precomputed placement.
+	 * The placement is known to fit the width, so this is a bare
+	 * max over the skirt.
+	 */
+	public int dropHeight(Placement placement) {
+		int[] skirt = placement.skirt;
+		int x = placement.x;
+		int height = 0;
+		for (int i = 0; i < skirt.length; i++) {
+			if ((this.colomns[x + i] - skirt[i]) > height)
+				height = this.colomns[x + i] - skirt[i];
+		}
+		return height;
+	}
+
+	/**
+	 * Batch version of dropHeight() -- stores the drop height of the
+	 * piece at every legal x (0 .. width - piece width) into heights,
+	 * which must have room for width entries, and returns how many
+	 * x values there were.
+	 * <p>
+	 * Implementation: one pass over the column heights per skirt
+	 * entry, each a simple loop over x, instead of a separate skirt
+	 * walk for every x.
+	 */
+	public int dropHeights(Piece piece, int[] heights) {
+		int[] skirt = piece.getSkirt();
+		int count = this.width - skirt.length + 1;
+		for (int x = 0; x < count; x++)
+			heights[x] = 0;
+		for (int i = 0; i < skirt.length; i++) {
+			final int s = skirt[i];
+			for (int x = 0; x < count; x++) {
+				int h = this.colomns[x + i] - s;
+				if (h > heights[x])
+					heights[x] = h;
+			}
+		}
+		return Math.max(count, 0);
+	}
+
 	/**
 	 * Returns the height of the given column --
 	 * i.e. the y value of the highest block + 1.
@@ -138,7 +304,7 @@ public class Board implements BoardAPI {
 	 * the given row.
 	 */
 	public int getRowWidth(int y) {
-		return this.rows[y];
+		return this.rows[this.rowIndex[y]];
 	}
 
 	/**
@@ -149,7 +315,7 @@ public class Board implements BoardAPI {
 	public boolean getGrid(int x, int y) {
 		if (x < 0 || x >= this.width || y < 0 || y >= this.height)
 			return true;
-		return this.grid[x][y];
+		return this.grid[this.rowIndex[y]][x];
 	}
 
 	/**
@@ -178,18 +344,38 @@ public class Board implements BoardAPI {
 		if (result == PLACE_OK) {
 			TPoint[] b = piece.getBody();
 			for (int i = 0; i < b.length; i++) {
-				if (getGrid(b[i].x + x, b[i].y + y)) {
-					result = PLACE_BAD;
+				result = placeBlock(b[i].x + x, b[i].y + y, result);
+				if (result == PLACE_BAD)
+					break;
+			}
+		}
+		this.committed = false;
+		if (DEBUG)
+			if (result == PLACE_OK || result == PLACE_ROW_FILLED)
+				sanityCheck();
+		return result;
+	}
+
+	/**
+	 * Same as place(piece, x, y) for a precomputed placement --
+	 * the blocks are already laid out at their board x, so there
+	 * are no TPoints to walk and no width check to do.
+	 */
+	public int place(Placement placement, int y) {
+		if (!this.committed) throw new RuntimeException("place commit problem");
+
+		int result = PLACE_OK;
+
+		if (y < 0)
+			result = PLACE_OUT_BOUNDS;
+
+		if (result == PLACE_OK) {
+			int[] cellX = placement.cellX;
+			int[] cellY = placement.cellY;
+			for (int i = 0; i < cellX.length; i++) {
+				result = placeBlock(cellX[i], cellY[i] + y, result);
+				if (result == PLACE_BAD)
 					break;
-				}
-				this.grid[b[i].x + x][b[i].y + y] = true;
-				if (this.colomns[b[i].x + x] < b[i].y + y + 1)
-					this.colomns[b[i].x + x] = b[i].y + y + 1;
-				if (b[i].y + y > this.maxHeight - 1)
-					this.maxHeight = b[i].y + y + 1;
-				this.rows[b[i].y + y]++;
-				if (this.rows[b[i].y + y] == this.width)
-					result = PLACE_ROW_FILLED;
 			}
 		}
 		this.committed = false;
@@ -199,18 +385,76 @@ public class Board implements BoardAPI {
 		return result;
 	}
 
+	// Fill one block of a piece being placed, returns the place() result so far
+	private int placeBlock(int x, int y, int result) {
+		if (getGrid(x, y))
+			return PLACE_BAD;
+		fillCell(x, y);
+		if (this.colomns[x] < y + 1)
+			setColumnHeight(x, y + 1);
+		if (y > this.maxHeight - 1)
+			setMaxHeight(y + 1);
+		if (getRowWidth(y) == this.width)
+			return PLACE_ROW_FILLED;
+		return result;
+	}
+
 
 	/**
 	 * Deletes rows that are filled all the way across, moving
 	 * things above down. Returns the number of rows cleared.
+	 * <p>
+	 * Implementation: rows are reached through the rowIndex table,
+	 * so one pass slides the index entries of the rows that stay
+	 * down over the full ones, which are recycled as empty rows on
+	 * top -- no cells are copied. The rows above the lowest full
+	 * row are rehashed once, whatever the number cleared.
 	 */
 	public int clearRows() {
+		final int top = this.maxHeight;
+		int first = 0;
+		while (first < top && this.rows[this.rowIndex[first]] != this.width)
+			first++;
+
 		int rowsCleared = 0;
-		for (int i = 0; i < this.rows.length; i++) {
-			if (this.rows[i] == this.width) {
-				clearRowY(i);
-				rowsCleared++;
-				i--;
+		if (first < top) {
+			rehashRows(first, top);
+			int to = first;
+			for (int from = first; from < top; from++) {
+				int row = this.rowIndex[from];
+				this.rowMap[from] = to;
+				if (this.rows[row] == this.width) {
+					// where a row by row clear would have found it
+					journal(LOG_CLEAR, from - rowsCleared, rowsCleared);
+					this.spareRows[rowsCleared++] = row;
+				} else {
+					this.rowIndex[to++] = row;
+				}
+			}
+			this.rowMap[top] = to;
+			for (int i = 0; i < rowsCleared; i++) {
+				int row = this.spareRows[i];
+				this.rowIndex[to + i] = row;
+				Arrays.fill(this.grid[row], false);
+				this.rows[row] = 0;
+				this.rowHashes[row] = 0;
+			}
+			rehashRows(first, to);
+			this.cellCount -= this.width * rowsCleared;
+			this.usedRows -= rowsCleared;
+			this.transitions += 2 * rowsCleared;    // a full row has none, an empty one 2
+
+			// A column whose top block stayed just moves down with it;
+			// one topped out in a full row looks for its next block down.
+			this.maxHeight = 0;
+			for (int x = 0; x < this.width; x++) {
+				int h = this.colomns[x];
+				int kept = (h > first) ? this.rowMap[h] : h;
+				if (h > first && this.rowMap[h - 1] == kept)
+					kept = getHeight(x, kept);
+				updateColumn(x, kept);
+				if (kept > this.maxHeight)
+					this.maxHeight = kept;
 			}
 		}
 		if (DEBUG)
@@ -220,68 +464,322 @@ public class Board implements BoardAPI {
 	}
 
 
-	// Clear given row and slide upper rows down
-	private void clearRowY(int y) {
-		this.maxHeight = 0;
-		for (int i = y; i < this.height - 1; i++) {
-			for (int x = 0; x < this.width; x++) {
-				this.grid[x][i] = this.grid[x][i + 1];
+	// Inverse of clearRows() -- put back the count full rows journaled
+	// from log[at], sliding the rows above each of them up, in one pass
+	private void insertFullRows(int at, int count) {
+		final int top = this.maxHeight;
+		final int first = this.log[at + 1];
+		final int last = this.log[at + 3 * (count - 1) + 1] + count - 1;
+		rehashRows(first, top);
+
+		// The rows end up at most this high -- the top one put back may
+		// have floated above everything else. The empty rows pushed out
+		// past it become the full ones.
+		final int end = Math.max(top + count - 1, last);
+		for (int i = 0; i < count; i++)
+			this.spareRows[i] = this.rowIndex[end - count + 1 + i];
+		int from = end - count;
+		int next = count - 1;    // full row to put back next, top down
+		for (int y = end; y >= first; y--) {
+			if (next >= 0 && this.log[at + 3 * next + 1] + next == y) {
+				int row = this.spareRows[next--];
+				this.rowIndex[y] = row;
+				Arrays.fill(this.grid[row], true);
+				this.rows[row] = this.width;
+				this.rowHashes[row] = this.fullRowHash;
+			} else {
+				this.rowMap[from] = y;
+				this.rowIndex[y] = this.rowIndex[from--];
 			}
-			this.rows[i] = this.rows[i + 1];
 		}
+		this.cellCount += this.width * count;
+		this.usedRows += count;
+		this.transitions -= 2 * count;
+
+		this.maxHeight = 0;
 		for (int x = 0; x < this.width; x++) {
-			this.grid[x][this.height - 1] = false;
-		}
-		this.rows[this.height - 1] = 0;
-		for (int i = 0; i < this.width; i++) {
-			this.colomns[i] = getHeight(i);
-			if (this.colomns[i] > this.maxHeight) {
-				this.maxHeight = this.colomns[i];
-			}
+			int h = this.colomns[x];
+			int back = (h > first) ? this.rowMap[h - 1] + 1 : h;
+			if (back < last + 1)
+				back = last + 1;
+			updateColumn(x, back);
+			if (back > this.maxHeight)
+				this.maxHeight = back;
 		}
+		rehashRows(first, this.maxHeight);
+	}
+
+	// Xor the hash terms of logical rows from..to-1 in (or out) of the hash
+	private void rehashRows(int from, int to) {
+		for (int y = from; y < to; y++)
+			this.hash ^= this.rowHashes[this.rowIndex[y]] * this.rowKeys[y];
+	}
+
+	// Flip cell (x, y) in the hash
+	private void toggleHash(int x, int y) {
+		int row = this.rowIndex[y];
+		long old = this.rowHashes[row];
+		this.rowHashes[row] = old ^ this.columnKeys[x];
+		this.hash ^= (old * this.rowKeys[y]) ^ (this.rowHashes[row] * this.rowKeys[y]);
+	}
+
+	// Well-mixed 64-bit key for a zobrist index (splitmix64 finalizer),
+	// so every board of a given size gets the same keys
+	private static long zobristKey(long i) {
+		long z = (i + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
 	}
 
 	private int getHeight(int x) {
-		for (int i = this.height - 1; i >= 0; i--)
-			if (getGrid(x, i))
+		return getHeight(x, this.height);
+	}
+
+	// Height of column x counting only the blocks below y
+	private int getHeight(int x, int y) {
+		for (int i = y - 1; i >= 0; i--)
+			if (this.grid[this.rowIndex[i]][x])
 				return i + 1;
 		return 0;
 	}
 
 
+	/**
+	 * Fills in one empty block of a committed board, outside of the
+	 * place()/undo() cycle -- used to build up a board read from
+	 * somewhere else. The block becomes part of the committed state.
+	 */
+	void addBlock(int x, int y) {
+		if (!this.committed || getGrid(x, y))
+			throw new RuntimeException("addBlock problem");
+		toggleCell(x, y);
+		if (this.colomns[x] < y + 1)
+			updateColumn(x, y + 1);
+		if (this.maxHeight < y + 1)
+			this.maxHeight = y + 1;
+	}
+
+	// Fill in one cell, recording it in the journal
+	private void fillCell(int x, int y) {
+		journal(LOG_CELL, x, y);
+		toggleCell(x, y);
+	}
+
+	// Flip one cell, keeping the row counts, hash and features in step
+	private void toggleCell(int x, int y) {
+		int row = this.rowIndex[y];
+		boolean[] cells = this.grid[row];
+		boolean filled = !cells[x];
+		boolean left = (x == 0) || cells[x - 1];
+		boolean right = (x == this.width - 1) || cells[x + 1];
+		// the (left, x) and (x, right) pairs each flip between
+		// transition and no transition
+		this.transitions += ((left == filled) ? -1 : 1) + ((right == filled) ? -1 : 1);
+		cells[x] = filled;
+		if (filled) {
+			this.cellCount++;
+			if (this.rows[row]++ == 0)
+				this.usedRows++;
+		} else {
+			this.cellCount--;
+			if (--this.rows[row] == 0)
+				this.usedRows--;
+		}
+		toggleHash(x, y);
+	}
+
+	// Change a column height, recording the old one in the journal
+	private void setColumnHeight(int x, int h) {
+		journal(LOG_COLUMN, x, this.colomns[x]);
+		updateColumn(x, h);
+	}
+
+	// Change a column height, keeping the height features in step
+	private void updateColumn(int x, int h) {
+		this.sumHeight += h - this.colomns[x];
+		this.bumpiness -= bumpinessAround(x);
+		this.wellDepth -= wellDepthAround(x);
+		this.colomns[x] = h;
+		this.bumpiness += bumpinessAround(x);
+		this.wellDepth += wellDepthAround(x);
+	}
+
+	// The part of the bumpiness that depends on column x
+	private int bumpinessAround(int x) {
+		int bump = 0;
+		if (x > 0)
+			bump += Math.abs(this.colomns[x - 1] - this.colomns[x]);
+		if (x < this.width - 1)
+			bump += Math.abs(this.colomns[x] - this.colomns[x + 1]);
+		return bump;
+	}
+
+	// The part of the well depth that depends on column x
+	private int wellDepthAround(int x) {
+		int depth = 0;
+		for (int i = Math.max(0, x - 1); i <= Math.min(this.width - 1, x + 1); i++)
+			depth += wellDepth(i);
+		return depth;
+	}
+
+	// How far column x sits below both of its neighbours
+	private int wellDepth(int x) {
+		int left = (x == 0) ? Integer.MAX_VALUE : this.colomns[x - 1];
+		int right = (x == this.width - 1) ? Integer.MAX_VALUE : this.colomns[x + 1];
+		int side = Math.min(left, right);
+		return (side == Integer.MAX_VALUE || side <= this.colomns[x]) ? 0 : side - this.colomns[x];
+	}
+
+	// Change the max height, recording the old one in the journal
+	private void setMaxHeight(int h) {
+		if (h != this.maxHeight) {
+			journal(LOG_MAX, this.maxHeight, 0);
+			this.maxHeight = h;
+		}
+	}
+
+	// Append one (op, a, b) entry to the undo journal
+	private void journal(int op, int a, int b) {
+		if (this.logSize + 3 > this.log.length)
+			this.log = Arrays.copyOf(this.log, this.log.length * 2);
+		this.log[this.logSize] = op;
+		this.log[this.logSize + 1] = a;
+		this.log[this.logSize + 2] = b;
+		this.logSize += 3;
+	}
+
+	// Revert journal entries, newest first, until only mark ints remain
+	private void rewind(int mark) {
+		while (this.logSize > mark) {
+			this.logSize -= 3;
+			int a = this.log[this.logSize + 1];
+			int b = this.log[this.logSize + 2];
+			switch (this.log[this.logSize]) {
+				case LOG_CELL:
+					toggleCell(a, b);
+					break;
+				case LOG_COLUMN:
+					updateColumn(a, b);
+					break;
+				case LOG_MAX:
+					this.maxHeight = a;
+					break;
+				case LOG_CLEAR:
+					// b more entries of the same clearRows() lie below
+					this.logSize -= 3 * b;
+					insertFullRows(this.logSize, b + 1);
+					break;
+			}
+		}
+	}
+
+
 	/**
 	 * Reverts the board to its state before up to one place
 	 * and one clearRows();
 	 * If the conditions for undo() are not met, such as
 	 * calling undo() twice in a row, then the second undo() does nothing.
 	 * See the overview docs.
+	 * <p>
+	 * Implementation: replays the journal backwards, so the cost is
+	 * proportional to what changed since commit(), not to the board size.
+	 * Never reverts past the most recent pushSnapshot().
 	 */
 	public void undo() {
 		if (!this.committed) {
 			this.committed = true;
-			for (int i = 0; i < this.width; i++) {
-				System.arraycopy(this.backup[i], 0, this.grid[i], 0, this.height);
-			}
-			System.arraycopy(this.backupColomns, 0, this.colomns, 0, this.width);
-			System.arraycopy(this.backupRows, 0, this.rows, 0, this.height);
-			this.maxHeight = this.backupHeight;
+			rewind(this.undoMark);
 		}
 	}
 
 
 	/**
 	 * Puts the board in the committed state.
+	 * Just forgets the journal -- O(1). While snapshots are pushed
+	 * the journal is kept for popSnapshot(), and commit() only
+	 * moves the point undo() goes back to.
 	 */
 	public void commit() {
 		if (!this.committed) {
 			this.committed = true;
-			for (int i = 0; i < this.width; i++) {
-				System.arraycopy(this.grid[i], 0, this.backup[i], 0, this.height);
-			}
-			System.arraycopy(this.colomns, 0, this.backupColomns, 0, this.width);
-			System.arraycopy(this.rows, 0, this.backupRows, 0, this.height);
-			this.backupHeight = this.maxHeight;
+			if (this.depth == 0)
+				this.logSize = 0;
+			this.undoMark = this.logSize;
+		}
+	}
+
+
+	/**
+	 * Saves the current board state on the snapshot stack and
+	 * leaves the board committed, so the next place() can go on top.
+	 * A search places a piece, pushes, places the next one, and so on,
+	 * then unwinds with popSnapshot() in reverse order.
+	 * Frames are just marks into the undo journal, so pushing and
+	 * popping never copy the board and do not allocate.
+	 */
+	public void pushSnapshot() {
+		if (this.depth == this.frameLog.length) {
+			this.frameLog = Arrays.copyOf(this.frameLog, this.depth * 2);
+			this.frameUndo = Arrays.copyOf(this.frameUndo, this.depth * 2);
+			this.frameCommitted = Arrays.copyOf(this.frameCommitted, this.depth * 2);
 		}
+		this.frameLog[this.depth] = this.logSize;
+		this.frameUndo[this.depth] = this.undoMark;
+		this.frameCommitted[this.depth] = this.committed;
+		this.depth++;
+		this.undoMark = this.logSize;
+		this.committed = true;
+	}
+
+
+	/**
+	 * Restores the board to exactly the state it had at the
+	 * matching pushSnapshot(), committed flag included.
+	 */
+	public void popSnapshot() {
+		if (this.depth == 0) throw new RuntimeException("no snapshot to pop");
+		this.depth--;
+		rewind(this.frameLog[this.depth]);
+		this.undoMark = this.frameUndo[this.depth];
+		this.committed = this.frameCommitted[this.depth];
+	}
+
+
+	/**
+	 * Returns the number of snapshots currently pushed.
+	 */
+	public int getSnapshotDepth() {
+		return this.depth;
+	}
+
+
+	/**
+	 * Returns true if the other board has the same size and the
+	 * same blocks filled. Compares the hashes first, so boards
+	 * that differ are almost always rejected in O(1).
+	 */
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (!(obj instanceof Board)) return false;
+		Board other = (Board) obj;
+
+		if (this.hash != other.hash || this.width != other.width
+				|| this.height != other.height || this.maxHeight != other.maxHeight)
+			return false;
+		for (int y = 0; y < this.maxHeight; y++) {
+			if (!Arrays.equals(this.grid[this.rowIndex[y]], other.grid[other.rowIndex[y]]))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Hash code folded from the Zobrist hash. Note the board is
+	 * mutable -- don't change a board while it is a key in a map.
+	 */
+	public int hashCode() {
+		return (int) (this.hash ^ (this.hash >>> 32));
 	}
 
 
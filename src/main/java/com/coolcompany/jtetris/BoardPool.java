@@ -0,0 +1,165 @@
+package com.coolcompany.jtetris;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A store for very large numbers of same-sized board positions, kept
+ * outside the Java heap in one direct ByteBuffer. Each slot holds a
+ * position in compact form -- the max height, the column heights as
+ * shorts and one int bitmask per row -- so the garbage collector
+ * never sees the positions and a million 10x24 boards fit in ~120MB.
+ * <p>
+ * Positions are read back through {@link PooledBoard}, a flyweight
+ * BoardView that reads straight from the buffer and can be moved
+ * from slot to slot, so reading never copies a board.
+ * <pre>
+ * BoardPool pool = new BoardPool(10, 24, 1000000);
+ * int slot = pool.add(board);
+ * PooledBoard view = pool.view(slot);
+ * for (int i = 0; i &lt; pool.size(); i++) {
+ *     view.moveTo(i);
+ *     ... view.getColumnHeight(x) ...
+ * }
+ * </pre>
+ * Widths are limited to {@link BitBoard#MAX_WIDTH}, as for BitBoard,
+ * and heights to Short.MAX_VALUE, as column heights are kept in shorts.
+ */
+public class BoardPool {
+
+	private final int width;
+
+	private final int height;
+
+	private final int rowsOffset;    // offset of the row masks inside a slot
+
+	private final int slotSize;
+
+	private final int capacity;
+
+	private final ByteBuffer buffer;
+
+	private int size;
+
+	/**
+	 * Creates an empty pool for boards of the given size with room
+	 * for capacity positions. The whole buffer is allocated up front.
+	 */
+	public BoardPool(int width, int height, int capacity) {
+		if (width < 1 || width > BitBoard.MAX_WIDTH)
+			throw new IllegalArgumentException("pooled board width must be 1.." + BitBoard.MAX_WIDTH + ": " + width);
+		if (height < 1 || height > Short.MAX_VALUE)
+			throw new IllegalArgumentException("pooled board height must be 1.." + Short.MAX_VALUE + ": " + height);
+		this.width = width;
+		this.height = height;
+		rowsOffset = 4 + ((2 * width + 3) & ~3);
+		slotSize = rowsOffset + 4 * height;
+		if ((long) slotSize * capacity > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("pool too large for one buffer: " + capacity + " slots");
+		this.capacity = capacity;
+		buffer = ByteBuffer.allocateDirect(slotSize * capacity).order(ByteOrder.nativeOrder());
+		size = 0;
+	}
+
+	/**
+	 * Returns the width of the pooled boards in blocks.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of the pooled boards in blocks.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the number of positions stored so far.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of positions the pool can hold.
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of bytes each position takes.
+	 */
+	public int getSlotSize() {
+		return slotSize;
+	}
+
+	/**
+	 * Stores the board in the next free slot and returns its index.
+	 */
+	public int add(BoardView board) {
+		if (size == capacity) throw new IllegalStateException("board pool is full");
+		store(size, board);
+		return size++;
+	}
+
+	/**
+	 * Overwrites the given slot with the board, which must
+	 * have the pool's width and height.
+	 */
+	public void store(int slot, BoardView board) {
+		if (board.getWidth() != width || board.getHeight() != height)
+			throw new IllegalArgumentException("board is " + board.getWidth() + "x" + board.getHeight()
+					+ ", pool holds " + width + "x" + height);
+		int base = base(slot);
+		int maxHeight = board.getMaxHeight();
+		buffer.putInt(base, maxHeight);
+		for (int x = 0; x < width; x++)
+			buffer.putShort(base + 4 + 2 * x, (short) board.getColumnHeight(x));
+		int rows = base + rowsOffset;
+		for (int y = 0; y < height; y++) {
+			int mask = 0;
+			if (y < maxHeight) {
+				if (board instanceof BitBoard) {
+					mask = ((BitBoard) board).getRowMask(y);
+				} else {
+					for (int x = 0; x < width; x++)
+						if (board.getGrid(x, y)) mask |= 1 << x;
+				}
+			}
+			buffer.putInt(rows + 4 * y, mask);
+		}
+	}
+
+	/**
+	 * Returns a new view positioned on the given slot. Views are
+	 * flyweights -- keep one and moveTo() it rather than asking for
+	 * one per slot.
+	 */
+	public PooledBoard view(int slot) {
+		PooledBoard view = new PooledBoard(this);
+		view.moveTo(slot);
+		return view;
+	}
+
+	// Byte offset of the start of a slot, checking the index
+	int base(int slot) {
+		if (slot < 0 || slot >= capacity)
+			throw new IndexOutOfBoundsException("slot " + slot + " of " + capacity);
+		return slot * slotSize;
+	}
+
+	int getMaxHeight(int base) {
+		return buffer.getInt(base);
+	}
+
+	int getColumnHeight(int base, int x) {
+		return buffer.getShort(base + 4 + 2 * x);
+	}
+
+	int getRowMask(int base, int y) {
+		return buffer.getInt(base + rowsOffset + 4 * y);
+	}
+}
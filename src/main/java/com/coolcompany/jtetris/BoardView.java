@@ -0,0 +1,27 @@
+package com.coolcompany.jtetris;
+
+/*
+ The read-only half of BoardAPI -- what can be asked of a board
+ without changing it. PooledBoard implements just this.
+ */
+public interface BoardView {
+
+	int getWidth();
+
+	int getHeight();
+
+	int getMaxHeight();
+
+	int getColumnHeight(int x);
+
+	int getRowWidth(int y);
+
+	boolean getGrid(int x, int y);
+
+	int dropHeight(Piece piece, int x);
+
+	int dropHeight(Placement placement);
+
+	int dropHeights(Piece piece, int[] heights);
+
+}
@@ -14,6 +14,10 @@ public interface Brain {
 	 * -- typically 20 (i.e. board.getHeight() - 4)
 	 * If the passed in move is non-null, it is used to hold the result
 	 * (just to save the memory allocation).
+	 * <p>
+	 * A search whose thread is interrupted gives up and throws
+	 * CancellationException, rather than return a move or null from
+	 * the plays it got through.
 	 */
 	Move bestMove(Board board, Piece piece, int limitHeight, Move move);
 }
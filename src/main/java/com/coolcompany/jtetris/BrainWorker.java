@@ -0,0 +1,232 @@
+// BrainWorker.java
+
+package com.coolcompany.jtetris;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs brain searches on a background thread, so the Swing thread
+ * never waits on one. start() copies the board and queues a search
+ * on the copy; the game loop then polls isDone() on each tick and
+ * picks up the answer with getMove() once it is there.
+ * <p>
+ * Only the latest search matters: start() and cancel() drop the one
+ * before it. A search that is already running is interrupted, and
+ * DefaultBrain.forEachPlay() gives up on the next play it is handed,
+ * so the worker is soon free for the next one; work a brain hands to
+ * a fork-join pool finishes its current batch first. Searches run one
+ * at a time, so a brain is never used by two of them at once.
+ * <p>
+ * speculate() uses the idle time while a piece falls: given the move
+ * about to be played, it works out the board that play will leave and
+ * finds the brain's answer for every piece that could come next.
+ * When the piece lands, getSpeculation() hands those answers over if
+ * the board turned out as predicted.
+ * <p>
+ * startPick() runs an Adversary's choice the same way, for a game
+ * that waits on it before the next piece comes in; a speculation on
+ * the same board saves it the brain searches.
+ */
+public class BrainWorker {
+
+	private final ExecutorService executor;
+	private Future<Move> pending;
+	private Future<Move[]> speculation;
+	private long speculationHash;    // hash of the board speculated on
+	private Future<Integer> pick;
+
+
+	/**
+	 * Creates a worker with its own daemon thread.
+	 */
+	public BrainWorker() {
+		executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "brain");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts brain.bestMove() for piece on a copy of board, dropping
+	 * any search still pending. The board is copied before this returns,
+	 * so the caller may go on changing it.
+	 */
+	public void start(final Brain brain, Board board, final Piece piece, final int limitHeight) {
+		cancel();
+		final Board copy = new Board(board);
+		pending = executor.submit(() -> brain.bestMove(copy, piece, limitHeight, null));
+	}
+
+	/**
+	 * Drops the pending search, if any, interrupting it if it is running.
+	 */
+	public void cancel() {
+		if (pending != null) {
+			pending.cancel(true);
+			pending = null;
+		}
+	}
+
+	/**
+	 * Returns true if a search was started and has finished.
+	 */
+	public boolean isDone() {
+		return (pending != null && pending.isDone());
+	}
+
+	/**
+	 * Copies the finished search's answer into move and returns true,
+	 * or returns false if the brain found no play. Only valid once
+	 * isDone() is true. A brain that threw has its exception rethrown.
+	 */
+	public boolean getMove(Move move) {
+		if (!isDone()) throw new IllegalStateException("no finished search");
+		Move result;
+		try {
+			result = pending.get();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);    // cannot happen, the search is done
+		} catch (ExecutionException e) {
+			throw new RuntimeException("brain search failed", e.getCause());
+		} catch (CancellationException e) {
+			throw new IllegalStateException(e);    // cannot happen, cancel() clears pending
+		}
+		if (result == null) return false;
+		move.x = result.x;
+		move.y = result.y;
+		move.piece = result.piece;
+		move.score = result.score;
+		return true;
+	}
+
+	/**
+	 * Starts working out the brain's answer for each of the standard
+	 * pieces on the board left by playing move -- placing move.piece at
+	 * (move.x, move.y) and clearing rows -- dropping any earlier
+	 * speculation. The board must be committed, without the piece in it.
+	 */
+	public void speculate(final Brain brain, Board board, Move move, final int limitHeight) {
+		cancelSpeculation();
+		final Board landed = new Board(board);
+		if (landed.place(move.piece, move.x, move.y) > Board.PLACE_ROW_FILLED) return;
+		landed.clearRows();
+		landed.commit();
+		speculationHash = landed.getHash();
+		speculation = executor.submit(() -> {
+			Piece[] pieces = Piece.getPieces();
+			Move[] moves = new Move[pieces.length];
+			for (int i = 0; i < pieces.length; i++)
+				moves[i] = brain.bestMove(landed, pieces[i], limitHeight, null);
+			return moves;
+		});
+	}
+
+	/**
+	 * Returns the brain's answers for each standard piece, in
+	 * Piece.getPieces() order with null where there is no play, if a
+	 * speculation on exactly this board has finished; null otherwise.
+	 * Never waits.
+	 */
+	public Move[] getSpeculation(Board board) {
+		if (speculation == null || !speculation.isDone() || board.getHash() != speculationHash)
+			return null;
+		try {
+			return speculation.get();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);    // cannot happen, the search is done
+		} catch (ExecutionException e) {
+			throw new RuntimeException("brain search failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Returns true if a speculation on exactly this board was started
+	 * and not dropped since, whether or not it has finished.
+	 */
+	public boolean hasSpeculation(Board board) {
+		return (speculation != null && board.getHash() == speculationHash);
+	}
+
+	/**
+	 * Drops the pending speculation, if any, interrupting it if it is running.
+	 */
+	public void cancelSpeculation() {
+		if (speculation != null) {
+			speculation.cancel(true);
+			speculation = null;
+		}
+	}
+
+	/**
+	 * Starts adversary.pick() on a copy of board, dropping any pick
+	 * still pending. If a speculation on exactly this board was started,
+	 * the pick waits for it and hands its answers to adversary.remember()
+	 * instead. The adversary is then only ever used on the worker thread.
+	 */
+	public void startPick(final Adversary adversary, Board board) {
+		cancelPick();
+		final Board copy = new Board(board);
+		final Future<Move[]> answers = (hasSpeculation(board) ? speculation : null);
+		pick = executor.submit(() -> {
+			if (answers != null) {
+				try {
+					return adversary.remember(copy, answers.get());    // done by now, searches run in order
+				} catch (CancellationException e) {
+					// dropped before it ran, so pick without it
+				}
+			}
+			return adversary.pick(copy);
+		});
+	}
+
+	/**
+	 * Returns true if a pick was started and has finished.
+	 */
+	public boolean isPickDone() {
+		return (pick != null && pick.isDone());
+	}
+
+	/**
+	 * Returns the finished pick's index in Piece.getPieces(). Only
+	 * valid once isPickDone() is true. An adversary that threw has its
+	 * exception rethrown.
+	 */
+	public int getPick() {
+		if (!isPickDone()) throw new IllegalStateException("no finished pick");
+		try {
+			return pick.get();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);    // cannot happen, the pick is done
+		} catch (ExecutionException e) {
+			throw new RuntimeException("adversary pick failed", e.getCause());
+		} catch (CancellationException e) {
+			throw new IllegalStateException(e);    // cannot happen, cancelPick() clears pick
+		}
+	}
+
+	/**
+	 * Drops the pending pick, if any, interrupting it if it is running.
+	 */
+	public void cancelPick() {
+		if (pick != null) {
+			pick.cancel(true);
+			pick = null;
+		}
+	}
+
+	/**
+	 * Drops the pending search, speculation and pick and stops the
+	 * worker thread.
+	 */
+	public void shutdown() {
+		cancel();
+		cancelSpeculation();
+		cancelPick();
+		executor.shutdownNow();
+	}
+}
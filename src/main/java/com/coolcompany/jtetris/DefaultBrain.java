@@ -2,6 +2,8 @@
 
 package com.coolcompany.jtetris;
 
+import java.util.concurrent.CancellationException;
+
 /**
  * Provided code.
  * A simple Brain implementation.
@@ -26,53 +28,122 @@ public class DefaultBrain implements Brain {
 		// Allocate a move object if necessary
 		if (move == null) move = new Move();
 
-		double bestScore = 1e20;
-		int bestX = 0;
-		int bestY = 0;
-		Piece bestPiece = null;
-		Piece current = piece;
+		final Move best = new Move();
+		best.score = 1e20;
 
 		board.commit();
 
-		// loop through all the rotations
-		while (true) {
-			final int yBound = limitHeight - current.getHeight() + 1;
-			final int xBound = board.getWidth() - current.getWidth() + 1;
+		// try every rotation at every column, and remember the play with the lowest score
+		if (!forEachPlay(board, piece, limitHeight, (b, placement, y, filled) -> {
+			double score = ratePlay(b, placement.piece, placement.x, y, filled);
+			if (score < best.score) {
+				best.score = score;
+				best.x = placement.x;
+				best.y = y;
+				best.piece = placement.piece;
+			}
+			return true;
+		})) throw new CancellationException("interrupted");    // only that stops it
+
+		if (best.piece == null) return (null);    // could not find a play at all!
+		else {
+			move.x = best.x;
+			move.y = best.y;
+			move.piece = best.piece;
+			move.score = best.score;
+			return (move);
+		}
+	}
+
+
+	/**
+	 * Receives the plays found by forEachPlay().
+	 */
+	protected interface PlayVisitor {
+		/**
+		 * Called with placement played at y on board. filled says
+		 * whether it filled any rows, which are still on the board.
+		 * The play is undone when this returns -- clearing rows or
+		 * pushing and popping snapshots on top of it is fine. Returns
+		 * false to stop the enumeration.
+		 */
+		boolean visit(Board board, Placement placement, int y, boolean filled);
+	}
 
-			// For current rotation, try all the possible columns
+	/**
+	 * Plays piece every legal way on the committed board, in the order
+	 * bestMove() tries them -- each rotation, starting with piece and
+	 * going round by fastRotation(), at each x from the left, dropped
+	 * straight down -- and hands each play to visitor. Plays that stick
+	 * up past limitHeight are skipped. Returns false if the visitor
+	 * stopped it early, or if the thread was interrupted -- which is
+	 * how BrainWorker stops a search it no longer needs.
+	 * <p>
+	 * This is the one move generation loop that every search builds
+	 * on; they differ only in what they do with each play.
+	 */
+	protected boolean forEachPlay(Board board, Piece piece, int limitHeight, PlayVisitor visitor) {
+		PlacementTable table = PlacementTable.forPiece(piece, board.getWidth());
+		int[] heights = new int[board.getWidth()];
+		Piece current = piece;
+		do {
+			final Placement[] placements = table.get(current);
+			final int xBound = board.dropHeights(current, heights);
 			for (int x = 0; x < xBound; x++) {
-				int y = board.dropHeight(current, x);
-				if (y < yBound) {    // piece does not stick up too far
-					int result = board.place(current, x, y);
-					if (result <= Board.PLACE_ROW_FILLED) {
-						if (result == Board.PLACE_ROW_FILLED) board.clearRows();
-
-						double score = rateBoard(board);
-
-						if (score < bestScore) {
-							bestScore = score;
-							bestX = x;
-							bestY = y;
-							bestPiece = current;
-						}
-					}
-
-					board.undo();    // back out that play, loop around for the next
-				}
+				if (!visit(board, placements[x], heights[x], limitHeight, visitor)) return false;
 			}
-
 			current = current.fastRotation();
-			if (current == piece) break;    // break if back to original rotation
-		}
+		} while (current != piece);
+		return true;
+	}
 
-		if (bestPiece == null) return (null);    // could not find a play at all!
-		else {
-			move.x = bestX;
-			move.y = bestY;
-			move.piece = bestPiece;
-			move.score = bestScore;
-			return (move);
+	/**
+	 * Same as forEachPlay() for a list of placements, from..to-1,
+	 * each dropped straight down -- for searches that share the
+	 * plays of one piece out between several boards.
+	 */
+	protected boolean forEachPlay(Board board, Placement[] placements, int from, int to,
+			int limitHeight, PlayVisitor visitor) {
+		for (int i = from; i < to; i++) {
+			if (!visit(board, placements[i], board.dropHeight(placements[i]), limitHeight, visitor)) return false;
 		}
+		return true;
+	}
+
+	/**
+	 * Throws CancellationException if the thread has been interrupted,
+	 * which makes forEachPlay() stop early -- so a search calls this
+	 * before it hands back what it found.
+	 */
+	protected static void checkInterrupted() {
+		if (Thread.currentThread().isInterrupted()) throw new CancellationException("interrupted");
+	}
+
+	// Plays placement at y unless it sticks up too far, hands it to visitor and undoes it;
+	// false stops the enumeration
+	private static boolean visit(Board board, Placement placement, int y, int limitHeight, PlayVisitor visitor) {
+		if (Thread.currentThread().isInterrupted()) return false;
+		if (y >= limitHeight - placement.piece.getHeight() + 1) return true;
+		boolean more = true;
+		int result = board.place(placement, y);
+		if (result <= Board.PLACE_ROW_FILLED)
+			more = visitor.visit(board, placement, y, result == Board.PLACE_ROW_FILLED);
+		board.undo();    // back out that play, loop around for the next
+		return more;
+	}
+
+
+	/*
+	 Rates the play of piece at (x, y), which has just been placed on
+	 the board. filled says whether it filled any rows, which are still
+	 on the board; this clears them, then rates the result.
+	 This version just calls rateBoard() -- brains whose rating
+	 depends on the play itself, such as where it landed or which
+	 rows it filled, override this instead.
+	*/
+	public double ratePlay(Board board, Piece piece, int x, int y, boolean filled) {
+		if (filled) board.clearRows();
+		return rateBoard(board);
 	}
 
 
@@ -82,28 +153,15 @@ public class DefaultBrain implements Brain {
 	 that board position -- larger numbers for worse boards.
 	 This version just counts the height
 	 and the number of "holes" in the board.
+	 The board keeps both up to date as pieces are placed,
+	 so this is O(1) rather than a scan of every column.
 	*/
 	public double rateBoard(Board board) {
 		final int width = board.getWidth();
 		final int maxHeight = board.getMaxHeight();
 
-		int sumHeight = 0;
-		int holes = 0;
-
-		// Count the holes, and sum up the heights
-		for (int x = 0; x < width; x++) {
-			final int colHeight = board.getColumnHeight(x);
-			sumHeight += colHeight;
-
-			int y = colHeight - 2;    // addr of first possible hole
-
-			while (y >= 0) {
-				if (!board.getGrid(x, y)) {
-					holes++;
-				}
-				y--;
-			}
-		}
+		int sumHeight = board.getSumHeight();
+		int holes = board.getHoles();
 
 		double avgHeight = ((double) sumHeight) / width;
 
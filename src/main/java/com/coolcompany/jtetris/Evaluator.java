@@ -0,0 +1,219 @@
+// Evaluator.java
+
+package com.coolcompany.jtetris;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Rates boards as a weighted sum of features -- larger numbers for
+ * worse boards, like DefaultBrain.rateBoard(). The features are:
+ * <ul>
+ * <li>MAX_HEIGHT, AVG_HEIGHT -- the tallest and the average column
+ * <li>HOLES -- empty blocks below the top of their column
+ * <li>BUMPINESS -- summed height differences between neighbours
+ * <li>WELLS -- summed depths of columns lower than both neighbours
+ * <li>ROW_TRANSITIONS, COLUMN_TRANSITIONS -- filled/empty boundaries
+ * along rows (walls filled) and up columns (floor filled, sky empty)
+ * <li>LANDING_HEIGHT -- the height of the middle of the piece just played
+ * <li>ERODED_CELLS -- rows the play cleared times the piece's own
+ * blocks in them
+ * </ul>
+ * Board keeps most of these up to date as pieces are placed, so they
+ * are read in O(1); column transitions come from one sweep up each
+ * column, which is skipped when its weight is 0. The last two depend
+ * on the play rather than the board, so they are only counted by
+ * rate(board, piece, x, y, filled), which must be called with the rows
+ * the play filled still on the board.
+ * <p>
+ * Weights are loaded from Properties keyed by feature name, e.g.
+ * "holes=1.25"; missing features weigh 0. An Evaluator is immutable
+ * and may be shared between threads.
+ */
+public class Evaluator {
+
+	public static final int MAX_HEIGHT = 0;
+	public static final int AVG_HEIGHT = 1;
+	public static final int HOLES = 2;
+	public static final int BUMPINESS = 3;
+	public static final int WELLS = 4;
+	public static final int ROW_TRANSITIONS = 5;
+	public static final int COLUMN_TRANSITIONS = 6;
+	public static final int LANDING_HEIGHT = 7;
+	public static final int ERODED_CELLS = 8;
+
+	public static final int FEATURE_COUNT = 9;
+
+	/**
+	 * The property name of each feature, indexed by the constants above.
+	 */
+	public static final String[] NAMES = {
+			"maxHeight", "avgHeight", "holes", "bumpiness", "wells",
+			"rowTransitions", "columnTransitions", "landingHeight", "erodedCells"
+	};
+
+	private final double[] weights;
+
+
+	/**
+	 * Creates an evaluator with one weight per feature, indexed by the
+	 * feature constants.
+	 */
+	public Evaluator(double[] weights) {
+		if (weights.length != FEATURE_COUNT)
+			throw new IllegalArgumentException("need " + FEATURE_COUNT + " weights: " + weights.length);
+		this.weights = weights.clone();
+	}
+
+	/**
+	 * Returns an evaluator with DefaultBrain's weights --
+	 * 8 * maxHeight + 40 * avgHeight + 1.25 * holes.
+	 */
+	public static Evaluator defaults() {
+		double[] weights = new double[FEATURE_COUNT];
+		weights[MAX_HEIGHT] = 8;
+		weights[AVG_HEIGHT] = 40;
+		weights[HOLES] = 1.25;
+		return new Evaluator(weights);
+	}
+
+	/**
+	 * Returns an evaluator weighted by the given properties, keyed by
+	 * feature name. Unknown names and values that are not numbers are
+	 * errors.
+	 */
+	public static Evaluator fromProperties(Properties config) {
+		double[] weights = new double[FEATURE_COUNT];
+		for (String name : config.stringPropertyNames()) {
+			int feature = Arrays.asList(NAMES).indexOf(name);
+			if (feature < 0) throw new IllegalArgumentException("unknown feature: " + name);
+			try {
+				weights[feature] = Double.parseDouble(config.getProperty(name).trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("bad weight for " + name + ": " + config.getProperty(name));
+			}
+		}
+		return new Evaluator(weights);
+	}
+
+	/**
+	 * Returns an evaluator weighted by the properties file at path.
+	 */
+	public static Evaluator load(Path path) throws IOException {
+		Properties config = new Properties();
+		try (Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			config.load(in);
+		}
+		return fromProperties(config);
+	}
+
+	/**
+	 * Returns the weight of the given feature.
+	 */
+	public double getWeight(int feature) {
+		return this.weights[feature];
+	}
+
+	/**
+	 * Rates the board alone -- the play features count 0.
+	 */
+	public double rate(Board board) {
+		return pass(board, null, 0, false, null);
+	}
+
+	/**
+	 * Rates the play of piece at (x, y), which has just been placed on
+	 * the board, then clears any rows it filled -- the same contract as
+	 * DefaultBrain.ratePlay(). The board features are those after the
+	 * clear.
+	 */
+	public double rate(Board board, Piece piece, int x, int y, boolean filled) {
+		return pass(board, piece, y, filled, null);
+	}
+
+	/**
+	 * Stores every feature of the board into features, which must have
+	 * room for FEATURE_COUNT entries, with the play features 0, and
+	 * returns the rating.
+	 */
+	public double features(Board board, double[] features) {
+		return pass(board, null, 0, false, features);
+	}
+
+	/**
+	 * Same as features(board, features) for a play, as in
+	 * rate(board, piece, x, y, filled).
+	 */
+	public double features(Board board, Piece piece, int x, int y, boolean filled, double[] features) {
+		return pass(board, piece, y, filled, features);
+	}
+
+	// Works out every feature, clearing the play's rows once the eroded cells are
+	// counted, and returns the weighted sum; features, if not null, gets the values
+	private double pass(Board board, Piece piece, int y, boolean filled, double[] features) {
+		double landing = 0;
+		int eroded = 0;
+		if (piece != null) {
+			landing = y + (piece.getHeight() - 1) / 2.0;
+			if (filled) {
+				int rows = 0;
+				int cells = 0;
+				for (int row = y; row < y + piece.getHeight(); row++) {
+					if (board.getRowWidth(row) == board.getWidth()) {
+						rows++;
+						for (TPoint p : piece.getBody()) {
+							if (p.y + y == row) cells++;
+						}
+					}
+				}
+				eroded = rows * cells;
+				board.clearRows();
+			}
+		}
+
+		final int width = board.getWidth();
+		double maxHeight = board.getMaxHeight();
+		double avgHeight = ((double) board.getSumHeight()) / width;
+		double holes = board.getHoles();
+		double bumpiness = board.getBumpiness();
+		double wells = board.getWellDepth();
+		double rowTransitions = board.getRowTransitions();
+
+		int columnTransitions = 0;
+		if (features != null || this.weights[COLUMN_TRANSITIONS] != 0) {
+			for (int col = 0; col < width; col++) {
+				final int top = board.getColumnHeight(col);
+				boolean below = true;    // the floor counts as filled
+				for (int row = 0; row < top; row++) {
+					boolean filledCell = board.getGrid(col, row);
+					if (filledCell != below) columnTransitions++;
+					below = filledCell;
+				}
+				if (below) columnTransitions++;    // and the sky above as empty
+			}
+		}
+
+		if (features != null) {
+			features[MAX_HEIGHT] = maxHeight;
+			features[AVG_HEIGHT] = avgHeight;
+			features[HOLES] = holes;
+			features[BUMPINESS] = bumpiness;
+			features[WELLS] = wells;
+			features[ROW_TRANSITIONS] = rowTransitions;
+			features[COLUMN_TRANSITIONS] = columnTransitions;
+			features[LANDING_HEIGHT] = landing;
+			features[ERODED_CELLS] = eroded;
+		}
+
+		final double[] w = this.weights;
+		return (w[MAX_HEIGHT] * maxHeight + w[AVG_HEIGHT] * avgHeight + w[HOLES] * holes
+				+ w[BUMPINESS] * bumpiness + w[WELLS] * wells + w[ROW_TRANSITIONS] * rowTransitions
+				+ w[COLUMN_TRANSITIONS] * columnTransitions + w[LANDING_HEIGHT] * landing
+				+ w[ERODED_CELLS] * eroded);
+	}
+}
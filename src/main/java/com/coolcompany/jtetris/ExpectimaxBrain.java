@@ -0,0 +1,165 @@
+// ExpectimaxBrain.java
+
+package com.coolcompany.jtetris;
+
+/**
+ * A DefaultBrain that looks ahead over pieces it has not seen yet.
+ * JTetris draws each new piece uniformly from the seven, so after the
+ * current piece lands the brain averages over all seven next pieces
+ * (a chance node), playing each of them its best way (a placement
+ * node), and so on for depth chance layers. A play is worth the
+ * expected rating at the bottom of its tree -- lower is better, as
+ * with ratePlay().
+ * <p>
+ * Chance node values are kept in a TranspositionTable, so boards
+ * reached again by a different order of plays are not searched twice,
+ * in this call or a later one. The search runs on the one board with
+ * pushSnapshot()/popSnapshot() and place()/undo(). With depth 0 it
+ * plays exactly like DefaultBrain.
+ */
+public class ExpectimaxBrain extends DefaultBrain {
+
+	public static final int DEFAULT_DEPTH = 1;
+	public static final int DEFAULT_TABLE_BITS = 16;
+
+	/**
+	 * Deadline passed to search() for a search that runs to the end.
+	 */
+	static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	// Rating of a chance node where some piece has no play at all
+	private static final double LOST = 1e20;
+
+	// The clock is read once every CLOCK_MASK + 1 chance nodes
+	private static final int CLOCK_MASK = 63;
+
+	private final int depth;
+	private final Piece[] pieces = Piece.getPieces();
+
+	// Chance node values
+	private final TranspositionTable table;
+
+	private long deadline;
+	private boolean aborted;
+	private int nodes;
+
+
+	/**
+	 * Creates a brain that averages over DEFAULT_DEPTH unknown pieces.
+	 */
+	public ExpectimaxBrain() {
+		this(DEFAULT_DEPTH, DEFAULT_TABLE_BITS);
+	}
+
+	/**
+	 * Creates a brain that averages over depth unknown pieces, with a
+	 * transposition table of 2^tableBits entries.
+	 */
+	public ExpectimaxBrain(int depth, int tableBits) {
+		if (depth < 0) throw new IllegalArgumentException("depth must not be negative: " + depth);
+		this.depth = depth;
+		this.table = new TranspositionTable(tableBits);
+	}
+
+	public int getDepth() {
+		return this.depth;
+	}
+
+	/**
+	 * Same contract as DefaultBrain.bestMove(). The score in the
+	 * returned move is the expected rating of the best play.
+	 */
+	@Override
+	public Move bestMove(Board board, Piece piece, int limitHeight, Move move) {
+		// Allocate a move object if necessary
+		if (move == null) move = new Move();
+
+		if (search(board, piece, limitHeight, this.depth, NO_DEADLINE, move)) return (move);
+		checkInterrupted();
+		return (null);    // could not find a play at all!
+	}
+
+	/**
+	 * The search behind bestMove(), depth chance layers deep, that
+	 * gives up once System.nanoTime() reaches deadline (NO_DEADLINE
+	 * for none). Returns true and fills in move if it finished and
+	 * found a play; otherwise move is left alone. Values cut short by
+	 * the deadline, or by the thread being interrupted, never reach
+	 * the transposition table.
+	 */
+	boolean search(Board board, Piece piece, int limitHeight, int depth, long deadline, Move move) {
+		board.commit();
+		this.deadline = deadline;
+		this.aborted = false;
+
+		final Move best = new Move();
+		best.score = Double.POSITIVE_INFINITY;    // a lost play still beats none
+		if (!forEachPlay(board, piece, limitHeight, (b, placement, y, filled) -> {
+			double score = play(b, placement, y, filled, depth, limitHeight);
+			if (this.aborted) return false;
+			if (score < best.score) {
+				best.score = score;
+				best.x = placement.x;
+				best.y = y;
+				best.piece = placement.piece;
+			}
+			return true;
+		})) this.aborted = true;    // out of time, or interrupted
+
+		if (this.aborted || best.piece == null) return false;
+		move.x = best.x;
+		move.y = best.y;
+		move.piece = best.piece;
+		move.score = best.score;
+		return true;
+	}
+
+	// Value of placement just played at y on board, with depth chance layers still below it
+	private double play(Board board, Placement placement, int y, boolean filled, int depth, int limitHeight) {
+		if (depth == 0) return ratePlay(board, placement.piece, placement.x, y, filled);
+
+		if (filled) board.clearRows();
+		board.pushSnapshot();    // commits the play for the layers below
+		double score = chance(board, depth, limitHeight);
+		board.popSnapshot();
+		return score;
+	}
+
+	// Average over the seven pieces of the best play of each
+	private double chance(Board board, int depth, int limitHeight) {
+		if (this.deadline != NO_DEADLINE && (++this.nodes & CLOCK_MASK) == 0
+				&& System.nanoTime() - this.deadline >= 0)
+			this.aborted = true;
+		if (this.aborted) return 0;
+
+		long key = TranspositionTable.key(board, depth, limitHeight);
+		int slot = this.table.find(key);
+		if (slot >= 0) return this.table.getValue(slot);
+
+		double sum = 0;
+		for (Piece piece : this.pieces) {
+			double best = best(board, piece, depth - 1, limitHeight);
+			if (this.aborted) return 0;
+			if (best >= LOST) {
+				sum = LOST * this.pieces.length;
+				break;
+			}
+			sum += best;
+		}
+		double value = sum / this.pieces.length;
+
+		this.table.put(key, value, TranspositionTable.EXACT);
+		return value;
+	}
+
+	// Best value of any play of piece, LOST if none fits
+	private double best(Board board, Piece piece, int depth, int limitHeight) {
+		final Move best = new Move();
+		best.score = LOST;
+		if (!forEachPlay(board, piece, limitHeight, (b, placement, y, filled) -> {
+			best.score = Math.min(best.score, play(b, placement, y, filled, depth, limitHeight));
+			return !this.aborted;
+		})) this.aborted = true;
+		return this.aborted ? LOST : best.score;
+	}
+}
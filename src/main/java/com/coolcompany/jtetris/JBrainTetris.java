@@ -8,11 +8,34 @@ public class JBrainTetris extends JTetris {
 	// Controls
 	protected JCheckBox brainBox;
 	protected JCheckBox animatedPlay;
+	protected JCheckBox speculateBox;
 	protected JSlider adversary;
+	protected JCheckBox deepAdversary;
 	protected JLabel advLabel;
 
 	protected DefaultBrain db = new DefaultBrain();
 
+	// Picks adversary pieces against db, in parallel and cached by board
+	protected Adversary adversaryPicker = new Adversary(db, HEIGHT);
+
+	// Picks adversary pieces looking several pieces ahead
+	protected Adversary deepPicker = new MinimaxAdversary(db, HEIGHT);
+
+	// Runs the brain's searches and the adversary's picks off the Swing thread
+	protected BrainWorker worker = new BrainWorker();
+
+	protected boolean adversaryTurn;    // the adversary picks the next piece
+	protected boolean awaitingPick;     // no piece in play until its pick is done
+
+	// The brain's plan for the current piece, kept while the piece falls
+	protected Move plan = new Move();
+	protected boolean planReady;     // false while the worker is still searching
+	protected boolean planned;       // false if the brain found no play
+	protected boolean planSpeculated;    // true if the answer comes from the speculation
+	protected int planCount = -1;    // count, root piece and board hash
+	protected int planRoot;          // the plan was made for
+	protected long planHash;
+
 	/**
 	 * Creates a new JBrainTetris using super class
 	 */
@@ -42,8 +65,11 @@ public class JBrainTetris extends JTetris {
 		brainBox.setSelected(false);
 		animatedPlay = new JCheckBox("Animate falling");
 		animatedPlay.setSelected(true);
+		speculateBox = new JCheckBox("Think ahead");
+		speculateBox.setSelected(true);
 		panel.add(brainBox);
 		panel.add(animatedPlay);
+		panel.add(speculateBox);
 
 		JPanel advPanel = new JPanel();
 		advPanel.add(new JLabel("Adversary:"));
@@ -53,6 +79,9 @@ public class JBrainTetris extends JTetris {
 		advLabel = new JLabel("ok");
 		advPanel.add(advLabel);
 		panel.add(advPanel);
+		deepAdversary = new JCheckBox("Deep adversary");
+		deepAdversary.setSelected(false);
+		panel.add(deepAdversary);
 
 
 		return panel;
@@ -61,23 +90,74 @@ public class JBrainTetris extends JTetris {
 	/**
 	 * Use super class if adversary value is 0
 	 * or random int 0-100 is less then adversary value,
-	 * else use adversary to get new piece
+	 * else the adversary picks the new piece. Its pick runs on the
+	 * worker, and the game waits without a piece in play until
+	 * tick() finds it done.
 	 */
 	@Override
-	public Piece pickNextPiece() {
-		Piece newPiece;
+	public void addNewPiece() {
 		int value = adversary.getValue();
 		int randValue = random.nextInt() % 100;
-		if (value == 0 || randValue > value) {
+		adversaryTurn = !(value == 0 || randValue > value);
+		if (adversaryTurn) {
+			board.commit();
+			currentPiece = null;
+			worker.cancel();    // the piece it was for has landed
+			if (!worker.hasSpeculation(board)) worker.cancelSpeculation();
+			worker.startPick(deepAdversary.isSelected() ? deepPicker : adversaryPicker, board);
+			awaitingPick = true;
+		} else {
+			super.addNewPiece();
+		}
+	}
+
+	/**
+	 * Waits out the adversary's pick, if one is running, then plays on
+	 */
+	@Override
+	public void tick(int verb) {
+		if (awaitingPick) {
+			if (!gameOn || !worker.isPickDone()) return;
+			awaitingPick = false;
+			super.addNewPiece();
+		} else {
+			super.tick(verb);
+		}
+	}
+
+	/**
+	 * Use super class unless it is the adversary's turn,
+	 * else take the adversary's finished pick
+	 */
+	@Override
+	public Piece pickNextPiece() {
+		Piece newPiece;
+		if (!adversaryTurn) {
 			advLabel.setText("ok");
 			newPiece = super.pickNextPiece();
 		} else {
 			advLabel.setText("*ok*");
 			newPiece = pickAdversaryPiece();
 		}
+		if (brainBox.isSelected()) startPlan(newPiece);
 		return newPiece;
 	}
 
+	/**
+	 * Stops the game, dropping any search or pick still running and
+	 * the plan, so the next game starts a search of its own
+	 */
+	@Override
+	public void stopGame() {
+		super.stopGame();
+		worker.cancel();
+		worker.cancelSpeculation();
+		worker.cancelPick();
+		awaitingPick = false;
+		planCount = -1;
+		planReady = false;
+	}
+
 	/*
 	 * Calculate best move score for every piece and return one, which has
 	 * the largest score
@@ -85,22 +165,15 @@ public class JBrainTetris extends JTetris {
 	 * that the game is going to be lost, so it has no meaning 
 	 * which piece will be returned, in that case 
 	 * return first piece from pieces array
+	 * The choice is worked out on the worker, started by addNewPiece();
+	 * this returns it once it is done. The seven searches run in
+	 * parallel, and the choice is cached by board, so a board seen
+	 * before is answered at once -- as is one the worker already
+	 * speculated on while the last piece fell.
+	 * With "Deep adversary" checked, it plays several pieces ahead.
 	 */
 	public Piece pickAdversaryPiece() {
-		int pieceIndex = 0;
-		double score = -1;
-		Piece[] pieces = Piece.getPieces();
-		Move curMove = new Move();
-		for (int i = 0; i < pieces.length; i++) {
-			curMove = db.bestMove(board, pieces[i], HEIGHT, curMove);
-			if (curMove != null) {
-				if (curMove.score > score) {
-					score = curMove.score;
-					pieceIndex = i;
-				}
-			}
-		}
-		return pieces[pieceIndex];
+		return Piece.getPieces()[worker.getPick()];
 	}
 
 	/**
@@ -115,8 +188,7 @@ public class JBrainTetris extends JTetris {
 			newX = currentX;
 			newY = currentY - 1;
 			newPiece = currentPiece;
-			Move move = new Move();
-			move = db.bestMove(board, currentPiece, HEIGHT, move);
+			Move move = planMove();
 			if (move != null) {
 				if (!move.piece.equals(currentPiece)) {
 					newPiece = currentPiece.fastRotation();
@@ -143,4 +215,63 @@ public class JBrainTetris extends JTetris {
 		}
 	}
 
+	/**
+	 * Returns the brain's move for the current piece, or null if it
+	 * has no play or has not finished thinking yet -- the piece then
+	 * just falls. The search runs on the worker once per piece; later
+	 * ticks get the same move back for as long as the piece count, the
+	 * piece and the board are unchanged, and a change starts a new one.
+	 * The board must be committed, without the current piece in it.
+	 */
+	protected Move planMove() {
+		int root = currentPiece.getSet().root(currentPiece.getId());
+		long hash = board.getHash();
+		if (count != planCount || root != planRoot || hash != planHash) {
+			startPlan(currentPiece);
+		}
+		if (!planReady) {
+			if (planSpeculated) {
+				Move[] moves = worker.getSpeculation(board);
+				if (moves == null) return (null);
+				Move move = moves[planRoot];
+				planned = (move != null);
+				if (planned) {
+					plan.x = move.x;
+					plan.y = move.y;
+					plan.piece = move.piece;
+					plan.score = move.score;
+				}
+			} else {
+				if (!worker.isDone()) return (null);
+				planned = worker.getMove(plan);
+			}
+			planReady = true;
+			if (planned && speculateBox.isSelected()) worker.speculate(db, board, plan, HEIGHT);
+		}
+		return (planned ? plan : null);
+	}
+
+	/**
+	 * Starts the brain's search for a piece about to be played, on the
+	 * worker thread, dropping any earlier search. If the board is the
+	 * one speculated on while the last piece fell, no search is needed:
+	 * planMove() takes the answer from the speculation, once it has
+	 * finished. Otherwise the speculation missed and is dropped. The
+	 * board must be committed, without the piece in it.
+	 */
+	protected void startPlan(Piece piece) {
+		planCount = count;
+		planRoot = piece.getSet().root(piece.getId());
+		planHash = board.getHash();
+		planReady = false;
+
+		planSpeculated = (speculateBox.isSelected() && worker.hasSpeculation(board));
+		if (planSpeculated) {
+			worker.cancel();
+		} else {
+			worker.cancelSpeculation();
+			worker.start(db, board, piece, HEIGHT);
+		}
+	}
+
 }
@@ -0,0 +1,151 @@
+// LookaheadBrain.java
+
+package com.coolcompany.jtetris;
+
+import java.util.Arrays;
+
+/**
+ * A DefaultBrain that also looks at the next piece in the preview.
+ * bestMove() rates every play of the current piece as DefaultBrain
+ * does, keeps the best few of them (the breadth), and for each of
+ * those plays the next piece every possible way on top. A first play
+ * is worth the best rating reachable after the second piece lands.
+ * <p>
+ * Searching all pairs is about 34x the work of one piece, so poor
+ * first plays are pruned before their children are looked at, and
+ * the second ply is played with pushSnapshot()/popSnapshot() and
+ * place()/undo() on the one board -- no copies.
+ * With no next piece set it plays exactly like DefaultBrain.
+ */
+public class LookaheadBrain extends DefaultBrain {
+
+	public static final int DEFAULT_BREADTH = 8;
+
+	private final int breadth;
+	private Piece[] nextPieces = new Piece[0];
+
+	// Scratch for the first ply, grown as needed and reused between calls
+	private Placement[] plays = new Placement[64];
+	private int[] playY = new int[64];
+	private double[] playScore = new double[64];
+	private Integer[] order = new Integer[64];
+	private int count;
+
+
+	/**
+	 * Creates a brain that expands the best DEFAULT_BREADTH first plays.
+	 */
+	public LookaheadBrain() {
+		this(DEFAULT_BREADTH);
+	}
+
+	/**
+	 * Creates a brain that expands the best breadth first plays.
+	 */
+	public LookaheadBrain(int breadth) {
+		if (breadth < 1) throw new IllegalArgumentException("breadth must be positive: " + breadth);
+		this.breadth = breadth;
+	}
+
+	/**
+	 * Sets the queue of pieces known to come after the one passed to
+	 * bestMove(), soonest first. Only the first is searched; later ones
+	 * are kept so callers can hand over the whole preview.
+	 */
+	public void setNextPieces(Piece... pieces) {
+		this.nextPieces = pieces.clone();
+	}
+
+	/**
+	 * Returns a copy of the queue of next pieces.
+	 */
+	public Piece[] getNextPieces() {
+		return this.nextPieces.clone();
+	}
+
+	/**
+	 * Same contract as DefaultBrain.bestMove(). The score in the
+	 * returned move is the best rating reachable after the next piece
+	 * also lands. If no first play leaves room for the next piece, the
+	 * best single play is returned with its one-piece score.
+	 */
+	@Override
+	public Move bestMove(Board board, Piece piece, int limitHeight, Move move) {
+		if (this.nextPieces.length == 0) return super.bestMove(board, piece, limitHeight, move);
+		Piece next = this.nextPieces[0];
+
+		// Allocate a move object if necessary
+		if (move == null) move = new Move();
+
+		board.commit();
+
+		int count = ratePlays(board, piece, limitHeight);
+		checkInterrupted();
+		if (count == 0) return (null);    // could not find a play at all!
+
+		// best first plays first, ties kept in DefaultBrain's order
+		Arrays.sort(this.order, 0, count, (a, b) -> Double.compare(this.playScore[a], this.playScore[b]));
+
+		double bestScore = 1e20;
+		int best = -1;
+		int expand = Math.min(count, this.breadth);
+		for (int i = 0; i < expand; i++) {
+			int play = this.order[i];
+			board.pushSnapshot();
+			if (board.place(this.plays[play], this.playY[play]) == Board.PLACE_ROW_FILLED) board.clearRows();
+			board.commit();
+			double score = bestScore(board, next, limitHeight);
+			board.popSnapshot();
+
+			if (score < bestScore) {
+				bestScore = score;
+				best = play;
+			}
+		}
+
+		checkInterrupted();
+		if (best < 0) {    // nothing leaves room for the next piece
+			best = this.order[0];
+			bestScore = this.playScore[best];
+		}
+		move.x = this.plays[best].x;
+		move.y = this.playY[best];
+		move.piece = this.plays[best].piece;
+		move.score = bestScore;
+		return (move);
+	}
+
+	// Rates every play of piece into the scratch arrays, returns how many there are
+	private int ratePlays(Board board, Piece piece, int limitHeight) {
+		this.count = 0;
+		forEachPlay(board, piece, limitHeight, (b, placement, y, filled) -> {
+			if (this.count == this.plays.length) grow();
+			this.plays[this.count] = placement;
+			this.playY[this.count] = y;
+			this.playScore[this.count] = ratePlay(b, placement.piece, placement.x, y, filled);
+			this.order[this.count] = this.count;
+			this.count++;
+			return true;
+		});
+		return this.count;
+	}
+
+	// Best rating of any play of piece on board, or 1e20 if there is none
+	private double bestScore(Board board, Piece piece, int limitHeight) {
+		final Move best = new Move();
+		best.score = 1e20;
+		forEachPlay(board, piece, limitHeight, (b, placement, y, filled) -> {
+			best.score = Math.min(best.score, ratePlay(b, placement.piece, placement.x, y, filled));
+			return true;
+		});
+		return best.score;
+	}
+
+	private void grow() {
+		int size = this.plays.length * 2;
+		this.plays = Arrays.copyOf(this.plays, size);
+		this.playY = Arrays.copyOf(this.playY, size);
+		this.playScore = Arrays.copyOf(this.playScore, size);
+		this.order = Arrays.copyOf(this.order, size);
+	}
+}
@@ -0,0 +1,190 @@
+// MinimaxAdversary.java
+
+package com.coolcompany.jtetris;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+/**
+ * An Adversary that looks several pieces ahead. The game is played
+ * as a two player tree: the adversary picks a piece, the brain plays
+ * it its best way, the adversary picks again, and so on for depth
+ * rounds, with the brain's ratePlay() scoring the last play at the
+ * bottom. The adversary goes for the highest score, the brain for the
+ * lowest; the piece picked is the one that leaves the brain worst off
+ * whatever it does. A piece with no play at all ends the game, which
+ * the adversary rates above any board.
+ * <p>
+ * The tree is searched with alpha-beta pruning. At every node the
+ * cheapest guess at each child's value -- one piece deep -- decides
+ * the order they are tried in, so the cutoffs come early. Adversary
+ * nodes are kept in a TranspositionTable, shared between picks. The
+ * search runs on one copy of the board using pushSnapshot()/popSnapshot().
+ * With depth 1 it picks exactly what the plain Adversary picks, as
+ * long as every piece has a play.
+ * <p>
+ * A deep search takes a while, so JBrainTetris runs it on its
+ * BrainWorker. If the thread is interrupted the search throws
+ * CancellationException, leaving neither the table nor the cache of
+ * picks with a value it had not finished.
+ */
+public class MinimaxAdversary extends Adversary {
+
+	public static final int DEFAULT_DEPTH = 2;
+	public static final int DEFAULT_TABLE_BITS = 16;
+
+	// Score of a board where the brain had no play for the piece
+	private static final double LOST = 1e20;
+
+	private final DefaultBrain brain;
+	private final int depth;
+	private final Piece[] pieces = Piece.getPieces();
+
+	// Adversary node values and bounds
+	private final TranspositionTable table;
+
+
+	/**
+	 * Creates an adversary searching DEFAULT_DEPTH rounds against brain.
+	 */
+	public MinimaxAdversary(DefaultBrain brain, int limitHeight) {
+		this(brain, limitHeight, DEFAULT_DEPTH, DEFAULT_TABLE_BITS);
+	}
+
+	/**
+	 * Creates an adversary searching depth rounds against brain,
+	 * with a transposition table of 2^tableBits entries.
+	 */
+	public MinimaxAdversary(DefaultBrain brain, int limitHeight, int depth, int tableBits) {
+		super(brain, limitHeight);
+		if (depth < 1) throw new IllegalArgumentException("depth must be positive: " + depth);
+		this.brain = brain;
+		this.depth = depth;
+		this.table = new TranspositionTable(tableBits);
+	}
+
+	public int getDepth() {
+		return this.depth;
+	}
+
+	/**
+	 * Answers for single pieces say nothing about the deeper tree, so
+	 * this just picks as usual -- answered from the cache of picks or
+	 * the table where the board was seen before, and otherwise a full
+	 * search, which is why it belongs on a worker thread.
+	 */
+	@Override
+	public int remember(Board board, Move[] moves) {
+		return pick(board);
+	}
+
+	@Override
+	protected int choose(Board board) {
+		Board copy = new Board(board);
+		copy.commit();
+		Plays[] plays = playsOf(copy);
+		Integer[] order = order(plays);
+		int best = order[0];
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int i : order) {
+			double value = brainNode(copy, plays[i], this.depth, bestValue, Double.POSITIVE_INFINITY);
+			if (value > bestValue) {
+				bestValue = value;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	// The adversary's turn: the highest value over the pieces, within (alpha, beta)
+	private double adversaryNode(Board board, int depth, double alpha, double beta) {
+		long key = TranspositionTable.key(board, depth, this.limitHeight);
+		int slot = this.table.find(key);
+		if (slot >= 0) {
+			double value = this.table.getValue(slot);
+			byte kind = this.table.getKind(slot);
+			if (kind == TranspositionTable.EXACT) return value;
+			if (kind == TranspositionTable.LOWER && value >= beta) return value;
+			if (kind == TranspositionTable.UPPER && value <= alpha) return value;
+		}
+
+		double start = alpha;
+		double best = Double.NEGATIVE_INFINITY;
+		Plays[] plays = playsOf(board);
+		for (int i : order(plays)) {
+			double value = brainNode(board, plays[i], depth, Math.max(alpha, best), beta);
+			if (value > best) best = value;
+			if (best >= beta) break;
+		}
+
+		this.table.put(key, best, (best <= start) ? TranspositionTable.UPPER
+				: (best >= beta) ? TranspositionTable.LOWER : TranspositionTable.EXACT);
+		return best;
+	}
+
+	// The brain's turn: the lowest value over its plays, within (alpha, beta)
+	private double brainNode(Board board, Plays plays, int depth, double alpha, double beta) {
+		if (depth == 1 || plays.count == 0) return plays.guess();    // the best rating is the value
+
+		double best = Double.POSITIVE_INFINITY;
+		for (int n = 0; n < plays.count; n++) {
+			int i = plays.order[n];
+			board.pushSnapshot();
+			if (board.place(plays.placement[i], plays.y[i]) == Board.PLACE_ROW_FILLED) board.clearRows();
+			board.commit();
+			double value = adversaryNode(board, depth - 1, alpha, Math.min(beta, best));
+			board.popSnapshot();
+			if (value < best) best = value;
+			if (best <= alpha) break;
+		}
+		return best;
+	}
+
+	// The plays of every piece on board, in Piece.getPieces() order
+	private Plays[] playsOf(Board board) {
+		Plays[] plays = new Plays[this.pieces.length];
+		for (int i = 0; i < this.pieces.length; i++)
+			plays[i] = new Plays(board, this.pieces[i], this.limitHeight);
+		return plays;
+	}
+
+	// Piece indexes, worst for the brain one piece deep first, ties by index
+	private static Integer[] order(final Plays[] plays) {
+		Integer[] order = new Integer[plays.length];
+		for (int i = 0; i < plays.length; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> Double.compare(plays[b].guess(), plays[a].guess()));
+		return order;
+	}
+
+	// Every play of a piece with its rating, and their order best first
+	private class Plays {
+		final Placement[] placement;
+		final int[] y;
+		final double[] score;
+		final Integer[] order;
+		int count;
+
+		Plays(Board board, Piece piece, int limitHeight) {
+			int size = 4 * board.getWidth();    // up to four rotations, each at up to width places
+			placement = new Placement[size];
+			y = new int[size];
+			score = new double[size];
+			if (!brain.forEachPlay(board, piece, limitHeight, (b, play, at, filled) -> {
+				placement[count] = play;
+				y[count] = at;
+				score[count] = brain.ratePlay(b, play.piece, play.x, at, filled);
+				count++;
+				return true;
+			})) throw new CancellationException("interrupted");    // only that stops it
+
+			order = new Integer[count];
+			for (int i = 0; i < count; i++) order[i] = i;
+			Arrays.sort(order, (a, b) -> Double.compare(score[a], score[b]));
+		}
+
+		// The best rating one piece deep, LOST if there is no play
+		double guess() {
+			return (count == 0) ? LOST : score[order[0]];
+		}
+	}
+}
@@ -0,0 +1,270 @@
+// MonteCarloBrain.java
+
+package com.coolcompany.jtetris;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A DefaultBrain that judges each play by simulating what comes after.
+ * bestMove() lists every play of the piece, then runs rollouts: the
+ * play is made, a few random pieces follow, each played greedily by
+ * ratePlay(), and the rating of the last play is the outcome. A
+ * rollout that tops out scores TOPPED_OUT. The play with the best
+ * (lowest) mean outcome is returned.
+ * <p>
+ * Rollouts run in rounds on a fork-join pool. After every play has had
+ * one, each round hands rollouts to the plays with the best lower
+ * confidence bound (UCB1, turned around since low scores win), so
+ * promising plays get most of the budget. Each leaf task copies the
+ * board once and resets it between rollouts with popSnapshot().
+ * The search stops when the rollout budget is used up or the time
+ * budget, if set, runs out -- whichever comes first -- or, after the
+ * round running, when the thread is interrupted -- and then throws
+ * CancellationException, as bestMove() does for any brain.
+ * <p>
+ * ratePlay() and rateBoard() are called from several threads at once,
+ * so subclasses that override them must not keep state in fields.
+ */
+public class MonteCarloBrain extends DefaultBrain {
+
+	public static final int DEFAULT_ROLLOUTS = 2000;
+	public static final int DEFAULT_ROLLOUT_DEPTH = 3;
+
+	// Outcome of a rollout where a piece found no play
+	public static final double TOPPED_OUT = 10000;
+
+	// UCB1 exploration constant, in ratePlay() units
+	private static final double EXPLORE = 50;
+
+	private final ForkJoinPool pool;
+	private final int rolloutDepth;
+	private int rollouts = DEFAULT_ROLLOUTS;
+	private long timeBudget = 0;
+	private SplittableRandom random = new SplittableRandom();
+
+
+	/**
+	 * Creates a brain running DEFAULT_ROLLOUTS rollouts of
+	 * DEFAULT_ROLLOUT_DEPTH pieces on the common fork-join pool.
+	 */
+	public MonteCarloBrain() {
+		this(ForkJoinPool.commonPool(), DEFAULT_ROLLOUT_DEPTH);
+	}
+
+	/**
+	 * Creates a brain whose rollouts play rolloutDepth random pieces
+	 * after the one being decided, on the given pool.
+	 */
+	public MonteCarloBrain(ForkJoinPool pool, int rolloutDepth) {
+		if (rolloutDepth < 0) throw new IllegalArgumentException("rollout depth must not be negative: " + rolloutDepth);
+		this.pool = pool;
+		this.rolloutDepth = rolloutDepth;
+	}
+
+	/**
+	 * Sets the number of rollouts per decision.
+	 */
+	public void setRolloutBudget(int rollouts) {
+		if (rollouts < 1) throw new IllegalArgumentException("rollout budget must be positive: " + rollouts);
+		this.rollouts = rollouts;
+	}
+
+	/**
+	 * Sets the time allowed per decision in nanoseconds, 0 for no limit.
+	 * The round running when it expires is finished, and every play
+	 * gets at least one rollout however short the budget.
+	 */
+	public void setTimeBudget(long nanos) {
+		if (nanos < 0) throw new IllegalArgumentException("time budget must not be negative: " + nanos);
+		this.timeBudget = nanos;
+	}
+
+	/**
+	 * Seeds the random pieces, so a search with only a rollout
+	 * budget on a pool of fixed size is repeatable.
+	 */
+	public void setSeed(long seed) {
+		this.random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Same contract as DefaultBrain.bestMove(). The score in the
+	 * returned move is the mean rollout outcome of the chosen play.
+	 */
+	@Override
+	public Move bestMove(Board board, Piece piece, int limitHeight, Move move) {
+		long start = System.nanoTime();
+
+		// Allocate a move object if necessary
+		if (move == null) move = new Move();
+
+		board.commit();
+
+		// the legal plays, in DefaultBrain's order
+		final List<Placement> plays = new ArrayList<Placement>();
+		final List<Integer> ys = new ArrayList<Integer>();
+		forEachPlay(board, piece, limitHeight, (b, placement, y, filled) -> {
+			plays.add(placement);
+			ys.add(y);
+			return true;
+		});
+		checkInterrupted();
+		if (plays.isEmpty()) return (null);    // could not find a play at all!
+
+		int count = plays.size();
+		Placement[] play = plays.toArray(new Placement[0]);
+		int[] playY = new int[count];
+		for (int i = 0; i < count; i++) playY[i] = ys.get(i);
+		double[] sum = new double[count];
+		int[] visits = new int[count];
+
+		// first round: one rollout for every play
+		int[] batch = new int[Math.max(count, this.pool.getParallelism() * 8)];
+		for (int i = 0; i < count; i++) batch[i] = i;
+		int done = runBatch(board, play, playY, batch, count, limitHeight, sum, visits);
+
+		while (done < this.rollouts && (this.timeBudget == 0 || System.nanoTime() - start < this.timeBudget)
+				&& !Thread.currentThread().isInterrupted()) {
+			int size = Math.min(batch.length, this.rollouts - done);
+			selectBatch(sum, visits, done, batch, size);
+			done += runBatch(board, play, playY, batch, size, limitHeight, sum, visits);
+		}
+
+		checkInterrupted();
+		int best = 0;
+		for (int i = 1; i < count; i++) {
+			if (sum[i] / visits[i] < sum[best] / visits[best]) best = i;
+		}
+		move.x = play[best].x;
+		move.y = playY[best];
+		move.piece = play[best].piece;
+		move.score = sum[best] / visits[best];
+		return (move);
+	}
+
+	// Fills batch with the plays to roll out next, by lower confidence bound;
+	// each pick counts as a visit straight away so the batch spreads out
+	private void selectBatch(double[] sum, int[] visits, int total, int[] batch, int size) {
+		int[] pending = new int[visits.length];
+		for (int b = 0; b < size; b++) {
+			double logTotal = Math.log(total + b);
+			int pick = 0;
+			double pickBound = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < visits.length; i++) {
+				int n = visits[i] + pending[i];
+				double bound = sum[i] / visits[i] - EXPLORE * Math.sqrt(2 * logTotal / n);
+				if (bound < pickBound) {
+					pickBound = bound;
+					pick = i;
+				}
+			}
+			pending[pick]++;
+			batch[b] = pick;
+		}
+	}
+
+	// Runs one rollout for each of the first size entries of batch, adds up the outcomes
+	private int runBatch(Board board, Placement[] play, int[] playY, int[] batch, int size,
+			int limitHeight, double[] sum, int[] visits) {
+		double[] outcomes = new double[size];
+		int leaf = Math.max(1, (size + this.pool.getParallelism() - 1) / this.pool.getParallelism());
+		this.pool.invoke(new Rollouts(board, play, playY, batch, outcomes, 0, size, leaf,
+				limitHeight, this.random.split()));
+		for (int b = 0; b < size; b++) {
+			sum[batch[b]] += outcomes[b];
+			visits[batch[b]]++;
+		}
+		return size;
+	}
+
+	// Runs rollouts lo..hi-1 of a batch, splitting until a share is at most leaf long
+	private class Rollouts extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Board board;
+		private final Placement[] play;
+		private final int[] playY;
+		private final int[] batch;
+		private final double[] outcomes;
+		private final int lo;
+		private final int hi;
+		private final int leaf;
+		private final int limitHeight;
+		private final SplittableRandom random;
+
+		Rollouts(Board board, Placement[] play, int[] playY, int[] batch, double[] outcomes,
+				int lo, int hi, int leaf, int limitHeight, SplittableRandom random) {
+			this.board = board;
+			this.play = play;
+			this.playY = playY;
+			this.batch = batch;
+			this.outcomes = outcomes;
+			this.lo = lo;
+			this.hi = hi;
+			this.leaf = leaf;
+			this.limitHeight = limitHeight;
+			this.random = random;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo > leaf) {
+				int mid = (lo + hi) >>> 1;
+				Rollouts left = new Rollouts(board, play, playY, batch, outcomes, lo, mid, leaf,
+						limitHeight, random.split());
+				left.fork();
+				new Rollouts(board, play, playY, batch, outcomes, mid, hi, leaf,
+						limitHeight, random).compute();
+				left.join();
+				return;
+			}
+
+			Board copy = new Board(board);
+			Piece[] pieces = Piece.getPieces();
+			for (int b = lo; b < hi; b++) {
+				Placement first = play[batch[b]];
+				int y = playY[batch[b]];
+				copy.pushSnapshot();
+				boolean filled = copy.place(first, y) == Board.PLACE_ROW_FILLED;
+				double outcome = ratePlay(copy, first.piece, first.x, y, filled);
+				copy.commit();
+				for (int step = 0; step < rolloutDepth; step++) {
+					Move played = playGreedy(copy, pieces[random.nextInt(pieces.length)]);
+					if (played == null) {
+						outcome = TOPPED_OUT;
+						break;
+					}
+					outcome = played.score;
+				}
+				outcomes[b] = outcome;
+				copy.popSnapshot();
+			}
+		}
+
+		// Plays piece its best way by ratePlay() and returns that play with its
+		// rating, or null if it has no play
+		private Move playGreedy(Board board, Piece piece) {
+			final Move best = new Move();
+			best.score = Double.POSITIVE_INFINITY;
+			forEachPlay(board, piece, limitHeight, (b, placement, y, filled) -> {
+				double score = ratePlay(b, placement.piece, placement.x, y, filled);
+				if (best.piece == null || score < best.score) {
+					best.score = score;
+					best.x = placement.x;
+					best.y = y;
+					best.piece = placement.piece;
+				}
+				return true;
+			});
+
+			if (best.piece == null) return null;
+			if (board.place(best.piece, best.x, best.y) == Board.PLACE_ROW_FILLED) board.clearRows();
+			board.commit();
+			return best;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+// ParallelBrain.java
+
+package com.coolcompany.jtetris;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A DefaultBrain that rates the candidate plays in parallel.
+ * bestMove() lists every (rotation, x) placement of the piece,
+ * splits the list across a fork-join pool -- each leaf task plays
+ * its share on its own copy of the board -- and reduces to the
+ * lowest score. Ties go to the earliest candidate in DefaultBrain's
+ * order, so the chosen Move is exactly the one DefaultBrain picks.
+ * <p>
+ * ratePlay() and rateBoard() are called from several threads at once,
+ * so subclasses that override them must not keep state in fields.
+ */
+public class ParallelBrain extends DefaultBrain {
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates a brain that runs on the common fork-join pool.
+	 */
+	public ParallelBrain() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a brain that runs on the given pool.
+	 */
+	public ParallelBrain(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Same contract as DefaultBrain.bestMove(). The board is only
+	 * read while the search runs, and is left committed.
+	 */
+	@Override
+	public Move bestMove(Board board, Piece piece, int limitHeight, Move move) {
+		// Allocate a move object if necessary
+		if (move == null) move = new Move();
+
+		board.commit();
+
+		// the candidates, in the same order DefaultBrain tries them
+		Placement[] all = PlacementTable.forPiece(piece, board.getWidth()).getAll(piece);
+		int leaf = Math.max(1, (all.length + pool.getParallelism() - 1) / pool.getParallelism());
+		Best best = pool.invoke(new Search(board, all, 0, all.length, leaf, limitHeight));
+		checkInterrupted();    // leaves the pool ran on this thread may have stopped
+
+		if (best == null) return (null);    // could not find a play at all!
+		else {
+			move.x = best.placement.x;
+			move.y = best.y;
+			move.piece = best.placement.piece;
+			move.score = best.score;
+			return (move);
+		}
+	}
+
+	// Best candidate found by a task
+	private static class Best {
+		Placement placement;    // null until a play is offered
+		int y;
+		double score;
+
+		// Keeps the play if it beats the best so far -- earlier plays win ties
+		void offer(Placement placement, int y, double score) {
+			if (this.placement == null || score < this.score) {
+				this.placement = placement;
+				this.y = y;
+				this.score = score;
+			}
+		}
+
+		// The better of two results, either of which may be null --
+		// a wins ties, so pass the one from earlier candidates as a
+		static Best better(Best a, Best b) {
+			if (a == null) return b;
+			if (b == null) return a;
+			return (b.score < a.score) ? b : a;
+		}
+	}
+
+	// Rates candidates lo..hi-1, splitting until a share is at most leaf long
+	private class Search extends RecursiveTask<Best> {
+		private static final long serialVersionUID = 1L;
+
+		private final Board board;
+		private final Placement[] candidates;
+		private final int lo;
+		private final int hi;
+		private final int leaf;
+		private final int limitHeight;
+
+		Search(Board board, Placement[] candidates, int lo, int hi, int leaf, int limitHeight) {
+			this.board = board;
+			this.candidates = candidates;
+			this.lo = lo;
+			this.hi = hi;
+			this.leaf = leaf;
+			this.limitHeight = limitHeight;
+		}
+
+		@Override
+		protected Best compute() {
+			if (hi - lo > leaf) {
+				int mid = (lo + hi) >>> 1;
+				Search left = new Search(board, candidates, lo, mid, leaf, limitHeight);
+				left.fork();
+				Best right = new Search(board, candidates, mid, hi, leaf, limitHeight).compute();
+				return Best.better(left.join(), right);
+			}
+
+			final Best best = new Best();
+			forEachPlay(new Board(board), candidates, lo, hi, limitHeight, (b, placement, y, filled) -> {
+				best.offer(placement, y, ratePlay(b, placement.piece, placement.x, y, filled));
+				return true;
+			});
+			return (best.placement == null) ? null : best;
+		}
+	}
+}
@@ -27,17 +27,24 @@ public class Piece {
 	// the algorithms to be done.
 	private TPoint[] body;
 
+	// The body as an occupancy bitmask -- bit (y * MASK_SIDE + x) is
+	// set when the body contains (x, y). Equality, hashing and rotation
+	// all work on this instead of on the TPoints.
+	private long mask;
+
 	private int[] skirt;
 
+	private int[] rowMasks;
+
 	private int width;
 
 	private int height;
 
 	private Piece next; // "next" rotation
 
-	static private Piece[] pieces;    // singleton static array of first rotations
+	private int id = -1; // dense (piece, rotation) id in its PieceSet, -1 if none
 
-	static private boolean piecesInitialized = false;
+	private PieceSet set; // the set the piece was built by, or null
 
 	/**
 	 * Defines a new piece given a TPoint[] array of its body.
@@ -45,10 +52,44 @@ public class Piece {
 	 */
 	private Piece(TPoint[] points) {
 		body = points.clone();
+		mask = getMask(points);
 		width = getWidth(points);
 		skirt = getSkirt(points);
 		height = getHeight(points);
-		pieces = getPieces();
+		rowMasks = getRowMasks(mask, height);
+	}
+
+	/**
+	 * Defines a new piece given the occupancy bitmask of its body.
+	 */
+	private Piece(long mask) {
+		this(getPoints(mask));
+	}
+
+	/**
+	 * Return occupancy bitmask of the given body
+	 */
+	private static long getMask(TPoint[] points) {
+		long mask = 0;
+		for (TPoint point : points) {
+			if (point.x < 0 || point.x >= MASK_SIDE || point.y < 0 || point.y >= MASK_SIDE)
+				throw new RuntimeException("Piece must fit in " + MASK_SIDE + "x" + MASK_SIDE + ": " + point);
+			mask |= 1L << (point.y * MASK_SIDE + point.x);
+		}
+		return mask;
+	}
+
+	/**
+	 * Return body points of the given occupancy bitmask, bottom row first
+	 */
+	private static TPoint[] getPoints(long mask) {
+		TPoint[] points = new TPoint[Long.bitCount(mask)];
+		for (int i = 0; mask != 0; i++) {
+			int bit = Long.numberOfTrailingZeros(mask);
+			points[i] = new TPoint(bit % MASK_SIDE, bit / MASK_SIDE);
+			mask &= mask - 1;
+		}
+		return points;
 	}
 
 	/**
@@ -58,7 +99,7 @@ public class Piece {
 		int width = getWidth(points);
 		int[] sk = new int[width];
 		for (int i = 0; i < width; i++)
-			sk[i] = 5;   // more than the highest possible point in piece
+			sk[i] = MASK_SIDE;   // more than the highest possible point in piece
 
 		for (TPoint point : points)
 			if (point.y < sk[point.x])
@@ -67,6 +108,18 @@ public class Piece {
 	}
 
 
+	/**
+	 * Return row bitmasks of the piece -- bit x of the y-th
+	 * mask is set when the body contains (x, y)
+	 */
+	private static int[] getRowMasks(long mask, int height) {
+		int[] masks = new int[height];
+		for (int y = 0; y < height; y++)
+			masks[y] = (int) (mask >>> (y * MASK_SIDE)) & ((1 << MASK_SIDE) - 1);
+		return masks;
+	}
+
+
 	/**
 	 * Return width of the piece
 	 */
@@ -90,14 +143,19 @@ public class Piece {
 	}
 
 	/**
-	 * Return next rotation of the given body as piece
+	 * Return next rotation of the given body mask as piece --
+	 * each (x, y) moves to (height - 1 - y, x)
 	 */
-	private Piece nextRotation(TPoint[] points) {
-		TPoint[] list = new TPoint[points.length];
-		for (int i = 0; i < points.length; i++)
-			list[i] = (new TPoint(height - 1 - points[i].y, points[i].x));
-
-		return new Piece(list);
+	private Piece nextRotation(long mask) {
+		long rotated = 0;
+		while (mask != 0) {
+			int bit = Long.numberOfTrailingZeros(mask);
+			int x = bit % MASK_SIDE;
+			int y = bit / MASK_SIDE;
+			rotated |= 1L << (x * MASK_SIDE + height - 1 - y);
+			mask &= mask - 1;
+		}
+		return new Piece(rotated);
 	}
 
 
@@ -142,13 +200,31 @@ public class Piece {
 		return skirt;
 	}
 
+	/**
+	 * Returns a pointer to the piece's row bitmasks. For each y value
+	 * up the piece, bit x of the mask is set when the body contains (x, y).
+	 * This is what bitboards use to place and collide the piece.
+	 * The caller should not modify this array.
+	 */
+	int[] getRowMasks() {
+		return rowMasks;
+	}
+
+	/**
+	 * Returns the occupancy bitmask of the whole body --
+	 * bit (y * MASK_SIDE + x) is set when the body contains (x, y).
+	 */
+	long getMask() {
+		return mask;
+	}
+
 
 	/**
 	 * Returns a new piece that is 90 degrees counter-clockwise
 	 * rotated from the receiver.
 	 */
 	Piece computeNextRotation() {
-		return nextRotation(body);
+		return nextRotation(mask);
 	}
 
 	/**
@@ -161,6 +237,32 @@ public class Piece {
 		return next;
 	}
 
+	/**
+	 * Returns the piece's (piece, rotation) id in the PieceSet it
+	 * belongs to -- a small int, dense from 0 -- or -1 for a piece
+	 * that was not built by a PieceSet.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the PieceSet the piece belongs to, or null for
+	 * a piece that was not built by a PieceSet.
+	 */
+	public PieceSet getSet() {
+		return set;
+	}
+
+	/**
+	 * Sets the set and id. Only called by PieceSet, once, while
+	 * it is still building the set and before anyone can see it.
+	 */
+	void register(PieceSet set, int id) {
+		this.set = set;
+		this.id = id;
+	}
+
 
 	/**
 	 * Returns true if two pieces are the same --
@@ -169,6 +271,7 @@ public class Piece {
 	 * same body arrays, since the points may not be
 	 * in the same order in the bodies. Used internally to detect
 	 * if two rotations are effectively the same.
+	 * O(1) -- just compares the body bitmasks.
 	 */
 	public boolean equals(Object obj) {
 		// standard equals() technique 1
@@ -179,31 +282,21 @@ public class Piece {
 		if (!(obj instanceof Piece)) return false;
 		Piece other = (Piece) obj;
 
-		return bodyEquals(other.getBody(), this.body);
+		return this.mask == other.mask;
 	}
 
-	/*
-	 * Return true if two given bodies are equal
-	 * else return false
+	/**
+	 * Hash code of the body bitmask, consistent with equals(),
+	 * so pieces can be used as keys in hash based maps.
 	 */
-	private boolean bodyEquals(TPoint[] body1, TPoint[] body2) {
-		for (TPoint aBody1 : body1)
-			if (!contains(body2, aBody1))
-				return false;
-		return true;
+	public int hashCode() {
+		long h = mask * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
 	}
 
-	/*
-	 * Return true if the given body contains the given point
-	 * else return false
-	 */
-	private boolean contains(TPoint[] body, TPoint p) {
-		for (TPoint aBody : body)
-			if (aBody.equals(p))
-				return true;
-		return false;
-	}
 
+	// Side of the square a piece body must fit in -- the body mask is 8x8
+	static final int MASK_SIDE = 8;
 
 	// String constants for the standard 7 tetris pieces
 	public static final String STICK_STR = "0 0	0 1	 0 2  0 3";
@@ -231,26 +324,12 @@ public class Piece {
 	 * from each piece with the {@link #fastRotation()} message.
 	 * In this way, the client can iterate through all the rotations
 	 * until eventually getting back to the first rotation.
-	 * (provided code)
+	 * The pieces come from {@link PieceSet#standard()}, which is
+	 * built eagerly and is safe to use from any thread.
+	 * The caller should not modify this array.
 	 */
 	static Piece[] getPieces() {
-		// lazy evaluation -- create static array if needed
-		if (!Piece.piecesInitialized) {
-			// use makeFastRotations() to compute all the rotations for each piece
-			Piece.piecesInitialized = true;
-			Piece.pieces = new Piece[]{
-					makeFastRotations(new Piece(STICK_STR)),
-					makeFastRotations(new Piece(L1_STR)),
-					makeFastRotations(new Piece(L2_STR)),
-					makeFastRotations(new Piece(S1_STR)),
-					makeFastRotations(new Piece(S2_STR)),
-					makeFastRotations(new Piece(SQUARE_STR)),
-					makeFastRotations(new Piece(PYRAMID_STR)),
-			};
-		}
-
-
-		return Piece.pieces;
+		return PieceSet.standard().getRoots();
 	}
 
 
@@ -266,7 +345,7 @@ public class Piece {
 	 and Piece.equals() to detect when the rotations have gotten us back
 	 to the first piece.
 	*/
-	private static Piece makeFastRotations(Piece root) {
+	static Piece makeFastRotations(Piece root) {
 		Piece temp = root;
 		while (true) {
 			temp.next = temp.computeNextRotation();
@@ -281,6 +360,25 @@ public class Piece {
 	}
 
 
+	/**
+	 * Builds the rotations of a piece straight from their body
+	 * bitmasks, in fastRotation() order, and links them in a
+	 * circular list like makeFastRotations(). Returns the root.
+	 * Used to load piece sets that were compiled earlier without
+	 * computing and comparing the rotations again.
+	 */
+	static Piece linkRotations(long[] masks) {
+		Piece root = new Piece(masks[0]);
+		Piece temp = root;
+		for (int i = 1; i < masks.length; i++) {
+			temp.next = new Piece(masks[i]);
+			temp = temp.next;
+		}
+		temp.next = root;
+		return root;
+	}
+
+
 	/**
 	 * Given a string of x,y pairs ("0 0	0 1 0 2 1 0"), parses
 	 * the points into a TPoint[] array.
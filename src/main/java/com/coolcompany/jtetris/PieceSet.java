@@ -0,0 +1,360 @@
+package com.coolcompany.jtetris;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+/**
+ * An immutable registry of a set of pieces and all their rotations.
+ * Every (piece, rotation) gets a dense small int id, in root order
+ * and then rotation order, and the rotation links are kept as plain
+ * int tables as well as through {@link Piece#fastRotation()}.
+ * <p>
+ * A set is completely built before it is handed out, and the
+ * standard set is created once when this class is initialised,
+ * so sets can be shared by any number of threads, and search code
+ * can pass pieces around as ids instead of Piece references.
+ * <pre>
+ * PieceSet set = PieceSet.standard();
+ * int id = set.firstId(Piece.PYRAMID);  // the pyramid's root rotation
+ * int next = set.next(id);              // its next rotation
+ * Piece piece = set.get(next);
+ * </pre>
+ * Besides the standard tetrominoes, sets of arbitrary polyominoes
+ * (pentominoes, say) can be loaded from a text file with
+ * {@link #load(Path)}. Their pieces get the same precomputed
+ * rotations, skirts and masks, and their own placement tables,
+ * so fastRotation(), dropHeight() and the brains work unchanged.
+ */
+public class PieceSet {
+
+	private static final PieceSet STANDARD = new PieceSet(new String[]{
+			Piece.STICK_STR,
+			Piece.L1_STR,
+			Piece.L2_STR,
+			Piece.S1_STR,
+			Piece.S2_STR,
+			Piece.SQUARE_STR,
+			Piece.PYRAMID_STR,
+	});
+
+	private final Piece[] roots;
+
+	private final Piece[] rotations;    // by id
+
+	private final int[] next;           // id -> id of the next rotation
+
+	private final int[] root;           // id -> index of its root in roots
+
+	private final int[] firstId;        // root index -> id of the root rotation
+
+	private final ConcurrentMap<Integer, PlacementTable> placements =
+			new ConcurrentHashMap<Integer, PlacementTable>();
+
+	// Cache files start with this, then the format version
+	private static final int CACHE_MAGIC = 0x4A545053;    // "JTPS"
+	private static final int CACHE_VERSION = 2;    // 2: bodies shifted to the origin
+
+	// Bits of column 0 in a body mask
+	private static final long COLUMN_0 = 0x0101010101010101L;
+
+	/**
+	 * Builds the set from the body strings of the root pieces,
+	 * computing and numbering all their rotations.
+	 */
+	PieceSet(String[] bodies) {
+		this(compile(bodies));
+	}
+
+	/**
+	 * Builds the set from root pieces whose rotations are
+	 * already linked, numbering all the rotations.
+	 */
+	private PieceSet(Piece[] linkedRoots) {
+		roots = linkedRoots;
+		firstId = new int[roots.length];
+		int count = 0;
+		for (int i = 0; i < roots.length; i++) {
+			firstId[i] = count;
+			Piece rotation = roots[i];
+			do {
+				rotation.register(this, count++);
+				rotation = rotation.fastRotation();
+			} while (rotation != roots[i]);
+		}
+
+		rotations = new Piece[count];
+		next = new int[count];
+		root = new int[count];
+		for (int i = 0; i < roots.length; i++) {
+			Piece rotation = roots[i];
+			do {
+				rotations[rotation.getId()] = rotation;
+				next[rotation.getId()] = rotation.fastRotation().getId();
+				root[rotation.getId()] = i;
+				rotation = rotation.fastRotation();
+			} while (rotation != roots[i]);
+		}
+	}
+
+	// Parse the bodies and compute the rotations of each
+	private static Piece[] compile(String[] bodies) {
+		Piece[] roots = new Piece[bodies.length];
+		for (int i = 0; i < bodies.length; i++)
+			roots[i] = Piece.makeFastRotations(new Piece(bodies[i]));
+		return roots;
+	}
+
+	/**
+	 * Returns the set of the 7 standard tetris pieces, in the
+	 * order STICK, L1, L2, S1, S2, SQUARE, PYRAMID.
+	 */
+	public static PieceSet standard() {
+		return STANDARD;
+	}
+
+	/**
+	 * Loads a set of pieces from a text file, using a compiled
+	 * cache next to it (the file name plus ".cache").
+	 * See {@link #load(Path, Path)}.
+	 */
+	public static PieceSet load(Path source) throws IOException {
+		return load(source, Paths.get(source.toString() + ".cache"));
+	}
+
+	/**
+	 * Loads a set of pieces from a text file with one piece per
+	 * line, written as x,y pairs like the Piece strings --
+	 * "0 0  1 0  2 0  1 1  1 2". Blank lines and lines starting
+	 * with # are skipped. Bodies must fit in 8x8 blocks, with every
+	 * block joined edge to edge to the rest, and are shifted so
+	 * their lowest x and y are 0. A line that breaks these rules,
+	 * or is not pairs of numbers, is an IOException naming it.
+	 * <p>
+	 * If the cache file holds a compiled copy of exactly this
+	 * source (checked by CRC), the rotations are read from it
+	 * instead of being computed. Otherwise the set is compiled and
+	 * the cache is rewritten; failing to write it is not an error.
+	 * A null cache means always compile.
+	 */
+	public static PieceSet load(Path source, Path cache) throws IOException {
+		byte[] bytes = Files.readAllBytes(source);
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+
+		if (cache != null && Files.isRegularFile(cache)) {
+			PieceSet cached = readCache(Files.readAllBytes(cache), crc.getValue());
+			if (cached != null)
+				return cached;
+		}
+
+		List<String> bodies = new ArrayList<String>();
+		String[] lines = new String(bytes, StandardCharsets.UTF_8).split("\\r?\\n");
+		for (int i = 0; i < lines.length; i++) {
+			String line = lines[i].trim();
+			if (!line.isEmpty() && !line.startsWith("#"))
+				bodies.add(parseBody(line, source, i + 1));
+		}
+		if (bodies.isEmpty())
+			throw new IOException("no pieces in " + source);
+		PieceSet set = new PieceSet(bodies.toArray(new String[0]));
+
+		if (cache != null) {
+			try {
+				Files.write(cache, set.writeCache(crc.getValue()));
+			} catch (IOException ignored) {
+				// the cache is only an optimisation
+			}
+		}
+		return set;
+	}
+
+	// Body on one line of a piece file as a Piece string, shifted so its lowest
+	// x and y are 0; lineNumber is for the error if the line is no good
+	private static String parseBody(String line, Path source, int lineNumber) throws IOException {
+		String[] tokens = line.split("\\s+");
+		if (tokens.length % 2 != 0)
+			throw badLine(source, lineNumber, "odd number of coordinates");
+		int[] coords = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			try {
+				coords[i] = Integer.parseInt(tokens[i]);
+			} catch (NumberFormatException e) {
+				throw badLine(source, lineNumber, "not a number: " + tokens[i]);
+			}
+		}
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		for (int i = 0; i < coords.length; i += 2) {
+			minX = Math.min(minX, coords[i]);
+			minY = Math.min(minY, coords[i + 1]);
+		}
+
+		long mask = 0;
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < coords.length; i += 2) {
+			long x = (long) coords[i] - minX;
+			long y = (long) coords[i + 1] - minY;
+			if (x >= Piece.MASK_SIDE || y >= Piece.MASK_SIDE)
+				throw badLine(source, lineNumber, "does not fit in " + Piece.MASK_SIDE + "x" + Piece.MASK_SIDE + " blocks");
+			long bit = 1L << (y * Piece.MASK_SIDE + x);
+			if ((mask & bit) != 0)
+				throw badLine(source, lineNumber, "block " + coords[i] + " " + coords[i + 1] + " given twice");
+			mask |= bit;
+			body.append(x).append(' ').append(y).append("  ");
+		}
+		if (!connected(mask))
+			throw badLine(source, lineNumber, "blocks are not all joined edge to edge");
+		return body.toString().trim();
+	}
+
+	private static IOException badLine(Path source, int lineNumber, String problem) {
+		return new IOException(source + " line " + lineNumber + ": " + problem);
+	}
+
+	// True if every block of the body mask can be reached from the first
+	// by steps between blocks that share an edge
+	private static boolean connected(long mask) {
+		long reached = Long.lowestOneBit(mask);
+		long before;
+		do {
+			before = reached;
+			reached |= ((reached << 1) & ~COLUMN_0) | ((reached >>> 1) & ~(COLUMN_0 << (Piece.MASK_SIDE - 1)))
+					| (reached << Piece.MASK_SIDE) | (reached >>> Piece.MASK_SIDE);
+			reached &= mask;
+		} while (reached != before);
+		return reached == mask;
+	}
+
+	// Compiled form of the set -- for each piece, its rotation masks in order
+	private byte[] writeCache(long crc) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(CACHE_MAGIC);
+		out.writeInt(CACHE_VERSION);
+		out.writeLong(crc);
+		out.writeInt(roots.length);
+		for (int i = 0; i < roots.length; i++) {
+			int end = (i + 1 < roots.length) ? firstId[i + 1] : rotations.length;
+			out.writeInt(end - firstId[i]);
+			for (int id = firstId[i]; id < end; id++)
+				out.writeLong(rotations[id].getMask());
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	// Set read back from a cache, or null if it is stale or damaged
+	private static PieceSet readCache(byte[] bytes, long crc) {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+			if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION || in.readLong() != crc)
+				return null;
+			Piece[] roots = new Piece[in.readInt()];
+			for (int i = 0; i < roots.length; i++) {
+				long[] masks = new long[in.readInt()];
+				if (masks.length < 1 || masks.length > 4)
+					return null;
+				for (int r = 0; r < masks.length; r++)
+					masks[r] = in.readLong();
+				roots[i] = Piece.linkRotations(masks);
+			}
+			return roots.length > 0 ? new PieceSet(roots) : null;
+		} catch (IOException e) {
+			return null;
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the first rotation of each piece.
+	 * The caller should not modify this array.
+	 */
+	Piece[] getRoots() {
+		return roots;
+	}
+
+	/**
+	 * Returns the number of pieces (not counting rotations).
+	 */
+	public int pieceCount() {
+		return roots.length;
+	}
+
+	/**
+	 * Returns the number of (piece, rotation) ids -- ids run from 0 to size() - 1.
+	 */
+	public int size() {
+		return rotations.length;
+	}
+
+	/**
+	 * Returns the piece rotation with the given id.
+	 */
+	public Piece get(int id) {
+		return rotations[id];
+	}
+
+	/**
+	 * Returns the id of the next counter-clockwise rotation.
+	 */
+	public int next(int id) {
+		return next[id];
+	}
+
+	/**
+	 * Returns the index of the piece (in the roots order) that the id is a rotation of.
+	 */
+	public int root(int id) {
+		return root[id];
+	}
+
+	/**
+	 * Returns the id of the first rotation of the piece at the given root index.
+	 */
+	public int firstId(int piece) {
+		return firstId[piece];
+	}
+
+	/**
+	 * Returns the rotation number of the id -- how many
+	 * fastRotation() steps it is from its root.
+	 */
+	public int rotation(int id) {
+		return id - firstId[root[id]];
+	}
+
+	/**
+	 * Returns the placement table of this set for the given board
+	 * width, building it the first time that width is asked for.
+	 */
+	public PlacementTable getPlacements(int width) {
+		PlacementTable table = placements.get(width);
+		if (table == null) {
+			table = new PlacementTable(this, width);
+			PlacementTable raced = placements.putIfAbsent(width, table);
+			if (raced != null) table = raced;
+		}
+		return table;
+	}
+
+	/**
+	 * Returns true if the piece is one of this set's rotations.
+	 */
+	public boolean contains(Piece piece) {
+		int id = piece.getId();
+		return id >= 0 && id < rotations.length && rotations[id] == piece;
+	}
+}
@@ -0,0 +1,56 @@
+package com.coolcompany.jtetris;
+
+/**
+ * Placement is used as a struct to store one precomputed
+ * (rotation, x) way of playing a piece on a board of a given width.
+ * Everything place() and dropHeight() would otherwise work out from
+ * the piece body and skirt is laid out here once, already shifted to x.
+ * Placements are handed out by PlacementTable, and played with
+ * BoardView.dropHeight(Placement) and BoardAPI.place(Placement, y);
+ * only the piece and x are visible outside the package.
+ */
+public final class Placement {
+
+	final Piece piece;
+
+	final int x;
+
+	final int[] skirt;       // the piece skirt, for columns x, x+1, ...
+
+	final int[] cellX;       // board x of each block
+
+	final int[] cellY;       // y of each block above the placement y
+
+	final int[] rowMasks;    // piece row masks shifted left by x
+
+	Placement(Piece piece, int x) {
+		this.piece = piece;
+		this.x = x;
+		this.skirt = piece.getSkirt();
+		TPoint[] body = piece.getBody();
+		cellX = new int[body.length];
+		cellY = new int[body.length];
+		for (int i = 0; i < body.length; i++) {
+			cellX[i] = body[i].x + x;
+			cellY[i] = body[i].y;
+		}
+		int[] masks = piece.getRowMasks();
+		rowMasks = new int[masks.length];
+		for (int i = 0; i < masks.length; i++)
+			rowMasks[i] = masks[i] << x;
+	}
+
+	/**
+	 * Returns the rotation of the piece this placement plays.
+	 */
+	public Piece getPiece() {
+		return piece;
+	}
+
+	/**
+	 * Returns the board x of the piece's lower left corner.
+	 */
+	public int getX() {
+		return x;
+	}
+}
@@ -0,0 +1,104 @@
+package com.coolcompany.jtetris;
+
+/**
+ * For one board width, the precomputed Placement of every rotation
+ * of every piece of a PieceSet at every legal x. Move generation walks
+ * the same (rotation, x) pairs for every piece it is asked about, so
+ * the tables are built once per width and shared.
+ * <p>
+ * Typical client code looks like...
+ * <pre>
+ * PlacementTable table = PlacementTable.forWidth(board.getWidth());
+ * for (Placement p : table.get(rotation)) {
+ *     int y = board.dropHeight(p);
+ *     board.place(p, y);
+ *     ...
+ * }
+ * </pre>
+ * Tables are immutable once built and safe to share between threads.
+ */
+public class PlacementTable {
+
+	private final int width;
+
+	private final PieceSet set;
+
+	private final Placement[][] placements;    // by piece id
+
+	PlacementTable(PieceSet set, int width) {
+		this.width = width;
+		this.set = set;
+		placements = new Placement[set.size()][];
+		for (int id = 0; id < set.size(); id++)
+			placements[id] = build(set.get(id), width);
+	}
+
+	/**
+	 * Returns the shared table of the standard pieces for the given
+	 * board width, building it the first time that width is asked for.
+	 */
+	public static PlacementTable forWidth(int width) {
+		return PieceSet.standard().getPlacements(width);
+	}
+
+	/**
+	 * Returns the shared table for the set the given piece belongs to
+	 * -- the standard table for pieces outside of any set.
+	 */
+	public static PlacementTable forPiece(Piece piece, int width) {
+		PieceSet set = piece.getSet();
+		return (set == null) ? forWidth(width) : set.getPlacements(width);
+	}
+
+	/**
+	 * Returns the board width the table was built for.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the placements of the given rotation, one per legal x
+	 * in increasing x order. Rotations of the table's pieces come
+	 * straight from the table; any other piece is computed on the fly.
+	 * The caller should not modify this array.
+	 */
+	public Placement[] get(Piece rotation) {
+		if (set.contains(rotation))
+			return placements[rotation.getId()];
+		return build(rotation, width);
+	}
+
+	/**
+	 * Returns the placements of every rotation of piece, starting with
+	 * piece itself and going round by fastRotation(), each rotation's in
+	 * increasing x order -- the order the brains try plays in. The
+	 * array is new, and the caller's to keep.
+	 */
+	public Placement[] getAll(Piece piece) {
+		int count = 0;
+		Piece current = piece;
+		do {
+			count += get(current).length;
+			current = current.fastRotation();
+		} while (current != piece);
+		Placement[] all = new Placement[count];
+		count = 0;
+		do {
+			Placement[] placements = get(current);
+			System.arraycopy(placements, 0, all, count, placements.length);
+			count += placements.length;
+			current = current.fastRotation();
+		} while (current != piece);
+		return all;
+	}
+
+	// All placements of one rotation on a board of the given width
+	private static Placement[] build(Piece rotation, int width) {
+		int count = Math.max(0, width - rotation.getWidth() + 1);
+		Placement[] result = new Placement[count];
+		for (int x = 0; x < count; x++)
+			result[x] = new Placement(rotation, x);
+		return result;
+	}
+}
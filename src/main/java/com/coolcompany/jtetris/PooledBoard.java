@@ -0,0 +1,107 @@
+package com.coolcompany.jtetris;
+
+/**
+ * A read-only BoardView of one slot of a {@link BoardPool}.
+ * Every call reads the pool's buffer directly, and moveTo() points
+ * the same view at another slot, so scanning millions of positions
+ * needs just one view object.
+ * <p>
+ * The view cannot be played on -- copy the position into a Board
+ * with Board(BoardView) to do that.
+ */
+public class PooledBoard implements BoardView {
+
+	private final BoardPool pool;
+
+	private int slot;
+
+	private int base;
+
+	PooledBoard(BoardPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Points the view at another slot of the same pool.
+	 */
+	public void moveTo(int slot) {
+		this.base = pool.base(slot);
+		this.slot = slot;
+	}
+
+	/**
+	 * Returns the slot the view is looking at.
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	public int getWidth() {
+		return pool.getWidth();
+	}
+
+	public int getHeight() {
+		return pool.getHeight();
+	}
+
+	public int getMaxHeight() {
+		return pool.getMaxHeight(base);
+	}
+
+	public int getColumnHeight(int x) {
+		return pool.getColumnHeight(base, x);
+	}
+
+	public int getRowWidth(int y) {
+		return Integer.bitCount(pool.getRowMask(base, y));
+	}
+
+	/**
+	 * Returns true if the given block is filled.
+	 * Blocks outside of the board always return true.
+	 */
+	public boolean getGrid(int x, int y) {
+		if (x < 0 || x >= getWidth() || y < 0 || y >= getHeight())
+			return true;
+		return ((pool.getRowMask(base, y) >>> x) & 1) != 0;
+	}
+
+	public int dropHeight(Piece piece, int x) {
+		int[] skirt = piece.getSkirt();
+		int height = 0;
+		for (int i = 0; i < skirt.length; i++) {
+			if (x + i >= getWidth()) break;
+			if ((getColumnHeight(x + i) - skirt[i]) > height)
+				height = getColumnHeight(x + i) - skirt[i];
+		}
+		return height;
+	}
+
+	public int dropHeight(Placement placement) {
+		return dropHeight(placement.piece, placement.x);
+	}
+
+	public int dropHeights(Piece piece, int[] heights) {
+		int count = getWidth() - piece.getWidth() + 1;
+		for (int x = 0; x < count; x++)
+			heights[x] = dropHeight(piece, x);
+		return Math.max(count, 0);
+	}
+
+	/*
+	 Renders the pooled position in the same format as Board.toString().
+	 */
+	public String toString() {
+		StringBuilder buff = new StringBuilder();
+		for (int y = getHeight() - 1; y >= 0; y--) {
+			buff.append('|');
+			for (int x = 0; x < getWidth(); x++) {
+				if (getGrid(x, y)) buff.append('+');
+				else buff.append(' ');
+			}
+			buff.append("|\n");
+		}
+		for (int x = 0; x < getWidth() + 2; x++) buff.append('-');
+		return (buff.toString());
+	}
+}
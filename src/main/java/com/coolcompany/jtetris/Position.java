@@ -0,0 +1,33 @@
+package com.coolcompany.jtetris;
+
+/**
+ * Position is used as a struct to store a game position --
+ * a board plus the piece in play and where it is, as read
+ * back by PositionReader. The piece is null if no piece was in play.
+ */
+public class Position {
+
+	Board board;
+
+	Piece piece;
+
+	int x;
+
+	int y;
+
+	public Board getBoard() {
+		return board;
+	}
+
+	public Piece getPiece() {
+		return piece;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+}
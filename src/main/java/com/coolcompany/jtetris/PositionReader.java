@@ -0,0 +1,139 @@
+package com.coolcompany.jtetris;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads back the positions written by {@link PositionWriter},
+ * one record at a time, from any readable channel.
+ * <pre>
+ * PositionReader in = new PositionReader(channel);
+ * Position pos;
+ * while ((pos = in.read()) != null) {
+ *     ... pos.getBoard() ...
+ * }
+ * </pre>
+ * The channel must be a blocking one. Records are checked as they are
+ * read, so a corrupt stream is an IOException rather than a runaway
+ * allocation.
+ */
+public class PositionReader {
+
+	/**
+	 * The largest board width or height a record may have.
+	 */
+	public static final int MAX_SIZE = 1024;
+
+	private final ReadableByteChannel channel;
+
+	private final ByteBuffer buffer;
+
+	public PositionReader(ReadableByteChannel channel) {
+		this(channel, 64 * 1024);
+	}
+
+	public PositionReader(ReadableByteChannel channel, int bufferSize) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocate(bufferSize);
+		this.buffer.flip();    // starts out empty
+	}
+
+	/**
+	 * Reads the next position, or returns null at the end of the
+	 * channel. A record cut off part way through is an EOFException.
+	 */
+	public Position read() throws IOException {
+		if (!fill())
+			return null;
+
+		Position pos = new Position();
+		final int width = getVarint();
+		final int height = getVarint();
+		final int maxHeight = getVarint();
+		if (width < 1 || width > MAX_SIZE || height < 1 || height > MAX_SIZE)
+			throw new IOException("bad position record: board " + width + "x" + height);
+		if (maxHeight < 0 || maxHeight > height)
+			throw new IOException("bad position record: max height " + maxHeight + " > " + height);
+
+		Board board = new Board(width, height);
+		int bits = 0;
+		int count = 0;
+		for (int row = 0; row < maxHeight; row++) {
+			for (int col = 0; col < width; col++) {
+				if (count == 0) {
+					bits = getByte();
+					count = 8;
+				}
+				if ((bits & 1) != 0)
+					board.addBlock(col, row);
+				bits >>>= 1;
+				count--;
+			}
+		}
+		pos.board = board;
+
+		int piece = getVarint();
+		int rotation = getVarint();
+		if (piece < 0 || piece > Piece.getPieces().length)
+			throw new IOException("bad position record: piece " + piece);
+		if (piece > 0) {
+			PieceSet set = PieceSet.standard();
+			int first = set.firstId(piece - 1);
+			int rotations = ((piece < set.pieceCount()) ? set.firstId(piece) : set.size()) - first;
+			if (rotation < 0 || rotation >= rotations)
+				throw new IOException("bad position record: rotation " + rotation + " of piece " + piece);
+			pos.piece = Piece.getPieces()[piece - 1];
+			for (int r = 0; r < rotation; r++)
+				pos.piece = pos.piece.fastRotation();
+		}
+		pos.x = unzigzag(getVarint());
+		pos.y = unzigzag(getVarint());
+		return pos;
+	}
+
+	/**
+	 * Closes the channel.
+	 */
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	// Make sure at least one byte is buffered, false at end of channel.
+	// A blocking channel never reads 0 bytes into an empty buffer, so 0
+	// means a non-blocking one, which would otherwise spin here.
+	private boolean fill() throws IOException {
+		if (!buffer.hasRemaining()) {
+			buffer.clear();
+			int n = channel.read(buffer);
+			buffer.flip();
+			if (n < 0)
+				return false;
+			if (n == 0)
+				throw new IOException("no data from channel -- PositionReader needs a blocking channel");
+		}
+		return true;
+	}
+
+	private static int unzigzag(int n) {
+		return (n >>> 1) ^ -(n & 1);
+	}
+
+	private int getVarint() throws IOException {
+		int n = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = getByte();
+			n |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return n;
+		}
+		throw new IOException("bad position record: varint too long");
+	}
+
+	private int getByte() throws IOException {
+		if (!fill())
+			throw new EOFException("position record cut off");
+		return buffer.get() & 0xFF;
+	}
+}
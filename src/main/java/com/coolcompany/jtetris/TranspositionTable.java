@@ -0,0 +1,79 @@
+// TranspositionTable.java
+
+package com.coolcompany.jtetris;
+
+/**
+ * A fixed-size table of search values keyed by board, for searches
+ * that reach the same board again by a different order of plays.
+ * Keys mix Board.getHash() with the depth still to search and the
+ * limit height, since a board's value depends on both. Each entry
+ * keeps a kind along with its value, so alpha-beta searches can store
+ * bounds as well as exact values. A new entry always replaces the old
+ * one in its slot.
+ * <p>
+ * The table is preallocated, so searching never allocates. It is not
+ * thread safe -- each search keeps its own.
+ */
+class TranspositionTable {
+
+	// Kinds of entry
+	static final byte EXACT = 1;
+	static final byte LOWER = 2;    // the value is at least this
+	static final byte UPPER = 3;    // the value is at most this
+
+	private final long[] keys;
+	private final double[] values;
+	private final byte[] kinds;
+	private final int mask;
+
+
+	/**
+	 * Creates a table of 2^bits entries.
+	 */
+	TranspositionTable(int bits) {
+		if (bits < 1 || bits > 30) throw new IllegalArgumentException("table bits must be 1..30: " + bits);
+		this.keys = new long[1 << bits];
+		this.values = new double[1 << bits];
+		this.kinds = new byte[1 << bits];
+		this.mask = (1 << bits) - 1;
+	}
+
+	/**
+	 * Returns the key of board with depth still to search under
+	 * limitHeight. Keys are never 0, which marks an empty slot.
+	 */
+	static long key(Board board, int depth, int limitHeight) {
+		long key = board.getHash() * 31 + depth * 0x9E3779B97F4A7C15L + limitHeight;
+		return (key == 0) ? 1 : key;
+	}
+
+	/**
+	 * Returns the slot holding key, or -1 if it is not stored.
+	 */
+	int find(long key) {
+		int slot = slot(key);
+		return (this.keys[slot] == key) ? slot : -1;
+	}
+
+	double getValue(int slot) {
+		return this.values[slot];
+	}
+
+	byte getKind(int slot) {
+		return this.kinds[slot];
+	}
+
+	/**
+	 * Stores the value of key, replacing whatever shared its slot.
+	 */
+	void put(long key, double value, byte kind) {
+		int slot = slot(key);
+		this.keys[slot] = key;
+		this.values[slot] = value;
+		this.kinds[slot] = kind;
+	}
+
+	private int slot(long key) {
+		return (int) (key ^ (key >>> 32)) & this.mask;
+	}
+}
@@ -0,0 +1,45 @@
+// WeightedBrain.java
+
+package com.coolcompany.jtetris;
+
+/**
+ * A DefaultBrain that rates plays with an Evaluator -- a weighted sum
+ * of board features, plus the landing height and eroded cells of the
+ * play being rated. The weights come from the evaluator, typically
+ * loaded from a properties file, so the brain can be tuned without
+ * writing a subclass. With Evaluator.defaults() it plays exactly like
+ * DefaultBrain.
+ */
+public class WeightedBrain extends DefaultBrain {
+
+	private final Evaluator evaluator;
+
+
+	/**
+	 * Creates a brain with DefaultBrain's weights.
+	 */
+	public WeightedBrain() {
+		this(Evaluator.defaults());
+	}
+
+	/**
+	 * Creates a brain rating plays with the given evaluator.
+	 */
+	public WeightedBrain(Evaluator evaluator) {
+		this.evaluator = evaluator;
+	}
+
+	public Evaluator getEvaluator() {
+		return this.evaluator;
+	}
+
+	@Override
+	public double ratePlay(Board board, Piece piece, int x, int y, boolean filled) {
+		return this.evaluator.rate(board, piece, x, y, filled);
+	}
+
+	@Override
+	public double rateBoard(Board board) {
+		return this.evaluator.rate(board);
+	}
+}
@@ -0,0 +1,56 @@
+package com.coolcompany.jtetris;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+  Runs the whole BoardTest suite against BitBoard,
+  plus a few bitboard specific checks.
+ */
+public class BitBoardTest extends BoardTest {
+
+	@Override
+	protected BoardAPI newBoard(int width, int height) {
+		return new BitBoard(width, height);
+	}
+
+	@Test
+	public void testBadPlaceLeavesGrid() {
+		BitBoard board = new BitBoard(4, 4);
+		Piece square = new Piece(Piece.SQUARE_STR);
+		board.place(square, 0, 0);
+		board.commit();
+		assertEquals(Board.PLACE_BAD, board.place(square, 1, 1));
+		assertFalse(board.getGrid(2, 2));
+		assertEquals(0, board.getRowWidth(2));
+		board.undo();
+		assertEquals(2, board.getMaxHeight());
+		assertEquals(Board.PLACE_BAD, board.place(square, 2, 3));
+		board.undo();
+		assertEquals(0, board.getColumnHeight(3));
+	}
+
+	@Test
+	public void testFullWidth() {
+		BitBoard board = new BitBoard(32, 4);
+		Piece stick = new Piece(Piece.STICK_STR).computeNextRotation();
+		for (int x = 0; x < 28; x += 4) {
+			assertEquals(Board.PLACE_OK, board.place(stick, x, 0));
+			board.commit();
+		}
+		assertEquals(Board.PLACE_ROW_FILLED, board.place(stick, 28, 0));
+		assertTrue(board.getGrid(31, 0));
+		assertEquals(32, board.getRowWidth(0));
+		assertEquals(1, board.clearRows());
+		assertEquals(0, board.getMaxHeight());
+		assertEquals(0, board.getColumnHeight(31));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooWide() {
+		new BitBoard(BitBoard.MAX_WIDTH + 1, 10);
+	}
+}
@@ -0,0 +1,197 @@
+package com.coolcompany.jtetris;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+/*
+  Checks for what only Board has over BoardAPI. BoardTest runs its
+  suite against every implementation, so these live apart from it.
+ */
+public class BoardOnlyTest {
+	private Piece pyr1, pyr2, pyr3, s, sRotated;
+
+	@Before
+	public void setUp() throws Exception {
+		pyr1 = new Piece(Piece.PYRAMID_STR);
+		pyr2 = pyr1.computeNextRotation();
+		pyr3 = pyr2.computeNextRotation();
+
+		s = new Piece(Piece.S1_STR);
+		sRotated = s.computeNextRotation();
+	}
+
+	@Test
+	public void testSnapshots() {
+		Board board = new Board(4, 8);
+		board.place(pyr1, 0, 0);
+		board.pushSnapshot();
+		assertEquals(1, board.getSnapshotDepth());
+		assertEquals(Board.PLACE_ROW_FILLED, board.place(pyr2, 2, 0));
+		assertEquals(1, board.clearRows());
+		board.pushSnapshot();
+		assertEquals(Board.PLACE_OK, board.place(pyr3, 0, 1));
+		assertEquals(3, board.getMaxHeight());
+		board.undo();
+		assertEquals(2, board.getMaxHeight());
+		assertEquals(3, board.getRowWidth(0));
+		board.popSnapshot();
+		assertEquals(1, board.getSnapshotDepth());
+		assertEquals(3, board.getRowWidth(0));
+		assertEquals(0, board.getColumnHeight(0));
+		board.popSnapshot();
+		assertEquals(0, board.getSnapshotDepth());
+		assertEquals(3, board.getRowWidth(0));
+		assertEquals(1, board.getRowWidth(1));
+		assertEquals(0, board.getColumnHeight(3));
+		assertEquals(2, board.getMaxHeight());
+		board.undo();
+		assertEquals(0, board.getMaxHeight());
+		assertEquals(0, board.getRowWidth(0));
+	}
+
+	@Test
+	public void testDeepSnapshots() {
+		Board board = new Board(4, 100);
+		Piece stick = new Piece(Piece.STICK_STR);
+		for (int i = 0; i < 20; i++) {
+			assertEquals(Board.PLACE_OK, board.place(stick, 0, board.dropHeight(stick, 0)));
+			board.pushSnapshot();
+		}
+		assertEquals(20, board.getSnapshotDepth());
+		assertEquals(80, board.getColumnHeight(0));
+		for (int i = 20; i > 0; i--) {
+			board.popSnapshot();
+			assertEquals(4 * i, board.getColumnHeight(0));
+		}
+		board.undo();
+		assertEquals(0, board.getMaxHeight());
+	}
+
+	@Test
+	public void testHash() {
+		Board one = new Board(4, 8);
+		Board two = new Board(4, 8);
+		assertEquals(one.getHash(), two.getHash());
+		assertEquals(one, two);
+
+		// same position reached in a different order
+		one.place(pyr1, 0, 0);
+		one.commit();
+		one.place(sRotated, 2, 1);
+		one.commit();
+		two.place(sRotated, 2, 1);
+		two.commit();
+		two.place(pyr1, 0, 0);
+		two.commit();
+		assertEquals(one.getHash(), two.getHash());
+		assertEquals(one.hashCode(), two.hashCode());
+		assertEquals(one, two);
+
+		long before = one.getHash();
+		assertEquals(Board.PLACE_OK, one.place(pyr3, 0, 4));
+		assertNotEquals(before, one.getHash());
+		assertFalse(one.equals(two));
+		one.undo();
+		assertEquals(before, one.getHash());
+
+		// clearing rows hashes the same as building the result directly
+		Board cleared = new Board(4, 8);
+		cleared.place(pyr1, 0, 0);
+		cleared.commit();
+		assertEquals(Board.PLACE_ROW_FILLED, cleared.place(pyr2, 2, 0));
+		cleared.clearRows();
+		cleared.commit();
+		Board direct = new Board(4, 8);
+		direct.place(new Piece("0 0  1 0  2 0  2 1"), 1, 0);
+		direct.commit();
+		assertEquals(direct.getHash(), cleared.getHash());
+		assertEquals(direct, cleared);
+		assertFalse(direct.equals(new Board(4, 9)));
+	}
+
+	// Checks the incrementally kept rating features
+	private void assertFeatures(Board board, int holes, int sumHeight, int bumpiness,
+								int wellDepth, int rowTransitions) {
+		assertEquals(holes, board.getHoles());
+		assertEquals(sumHeight, board.getSumHeight());
+		assertEquals(bumpiness, board.getBumpiness());
+		assertEquals(wellDepth, board.getWellDepth());
+		assertEquals(rowTransitions, board.getRowTransitions());
+	}
+
+	@Test
+	public void testFeatures() {
+		Board board = new Board(4, 8);
+		assertFeatures(board, 0, 0, 0, 0, 0);
+		board.place(pyr1, 0, 0);
+		board.commit();
+		assertFeatures(board, 0, 4, 3, 2, 6);
+
+		assertEquals(Board.PLACE_ROW_FILLED, board.place(new Piece(Piece.STICK_STR), 3, 0));
+		assertFeatures(board, 0, 8, 5, 2, 8);
+		board.clearRows();
+		assertFeatures(board, 0, 4, 5, 2, 8);
+		board.undo();
+		assertFeatures(board, 0, 4, 3, 2, 6);
+
+		// a hole under an overhang
+		assertEquals(Board.PLACE_OK, board.place(s, 1, 2));
+		assertFeatures(board, 4, 12, 3, 2, 12);
+		board.undo();
+		assertFeatures(board, 0, 4, 3, 2, 6);
+	}
+
+	// The board matches one built by replaying its history, features and all
+	private void assertReplayed(Board expected, Board board) {
+		assertEquals(expected, board);
+		assertEquals(expected.getHash(), board.getHash());
+		for (int x = 0; x < board.getWidth(); x++)
+			assertEquals(expected.getColumnHeight(x), board.getColumnHeight(x));
+		for (int y = 0; y < board.getHeight(); y++)
+			assertEquals(expected.getRowWidth(y), board.getRowWidth(y));
+		assertFeatures(board, expected.getHoles(), expected.getSumHeight(), expected.getBumpiness(),
+				expected.getWellDepth(), expected.getRowTransitions());
+	}
+
+	@Test
+	public void testUndoFloatingClear() {
+		Piece flat = new Piece(Piece.STICK_STR).computeNextRotation();
+
+		// a full row with nothing under it
+		Board board = new Board(4, 10);
+		assertEquals(Board.PLACE_ROW_FILLED, board.place(flat, 0, 2));
+		assertEquals(1, board.clearRows());
+		assertEquals(0, board.getMaxHeight());
+		board.undo();
+		assertReplayed(new Board(4, 10), board);
+
+		// above other blocks, with the place committed so only the clear is undone
+		board.place(pyr1, 0, 0);
+		board.commit();
+		assertEquals(Board.PLACE_ROW_FILLED, board.place(flat, 0, 4));
+		board.commit();
+		assertEquals(1, board.clearRows());
+		assertEquals(2, board.getMaxHeight());
+		board.undo();
+		Board expected = new Board(4, 10);
+		expected.place(pyr1, 0, 0);
+		expected.commit();
+		expected.place(flat, 0, 4);
+		expected.commit();
+		assertReplayed(expected, board);
+
+		// and the same rewound by popSnapshot(), with rows cleared below and in between
+		board.pushSnapshot();
+		assertEquals(Board.PLACE_ROW_FILLED, board.place(flat, 0, 6));
+		board.commit();
+		assertEquals(Board.PLACE_ROW_FILLED, board.place(new Piece(Piece.STICK_STR), 3, 0));
+		assertEquals(3, board.clearRows());
+		assertEquals(3, board.getMaxHeight());
+		board.popSnapshot();
+		assertReplayed(expected, board);
+	}
+}
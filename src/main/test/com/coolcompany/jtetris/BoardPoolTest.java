@@ -0,0 +1,92 @@
+package com.coolcompany.jtetris;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BoardPoolTest {
+	private BoardPool pool;
+	private Board board;
+	private Piece pyr1, s;
+
+	@Before
+	public void setUp() throws Exception {
+		pool = new BoardPool(4, 8, 3);
+		board = new Board(4, 8);
+		pyr1 = new Piece(Piece.PYRAMID_STR);
+		s = new Piece(Piece.S1_STR);
+	}
+
+	@Test
+	public void testStoreAndView() {
+		assertEquals(0, pool.add(board));
+		board.place(pyr1, 0, 0);
+		board.commit();
+		board.place(s, 1, 2);
+		board.commit();
+		assertEquals(1, pool.add(board));
+		assertEquals(2, pool.size());
+
+		PooledBoard view = pool.view(1);
+		assertEquals(4, view.getWidth());
+		assertEquals(8, view.getHeight());
+		assertEquals(board.getMaxHeight(), view.getMaxHeight());
+		for (int x = 0; x < 4; x++)
+			assertEquals(board.getColumnHeight(x), view.getColumnHeight(x));
+		for (int y = 0; y < 8; y++) {
+			assertEquals(board.getRowWidth(y), view.getRowWidth(y));
+			for (int x = 0; x < 4; x++)
+				assertEquals(board.getGrid(x, y), view.getGrid(x, y));
+		}
+		assertTrue(view.getGrid(-1, 0));
+		assertEquals(board.dropHeight(pyr1, 1), view.dropHeight(pyr1, 1));
+		assertEquals(board.toString(), view.toString());
+
+		view.moveTo(0);
+		assertEquals(0, view.getMaxHeight());
+		assertFalse(view.getGrid(1, 1));
+	}
+
+	@Test
+	public void testCopyBack() {
+		BitBoard bits = new BitBoard(4, 8);
+		bits.place(pyr1, 1, 0);
+		bits.commit();
+		pool.store(2, bits);
+		Board copy = new Board(pool.view(2));
+		assertEquals(bits.toString(), copy.toString());
+		assertEquals(2, copy.getMaxHeight());
+		assertEquals(2, copy.getColumnHeight(2));
+		assertEquals(3, copy.getRowWidth(0));
+
+		Board placed = new Board(4, 8);
+		placed.place(pyr1, 1, 0);
+		placed.commit();
+		assertEquals(placed, copy);
+		assertEquals(placed.getHash(), copy.getHash());
+		assertEquals(Board.PLACE_OK, copy.place(s, 0, 2));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFull() {
+		for (int i = 0; i < 4; i++)
+			pool.add(board);
+	}
+
+	// column heights are shorts, so taller boards would wrap
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooTall() {
+		new BoardPool(10, Short.MAX_VALUE + 1, 1);
+	}
+
+	// Views have no place()/clearRows() at all, rather than ones that throw
+	@Test
+	public void testReadOnly() {
+		pool.add(board);
+		BoardView view = pool.view(0);
+		assertFalse(view instanceof BoardAPI);
+	}
+}
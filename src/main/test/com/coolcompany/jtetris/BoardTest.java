@@ -6,7 +6,7 @@ import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 
 public class BoardTest {
-	private Board b;
+	private BoardAPI b;
 	private Piece pyr1, pyr2, pyr3, pyr4, s, sRotated;
 
 	// This shows how to build things in setUp() to re-use
@@ -17,7 +17,7 @@ public class BoardTest {
 	// ready to be used by tests.
 	@Before
 	public void setUp() throws Exception {
-		b = new Board(3, 6);
+		b = newBoard(3, 6);
 
 		pyr1 = new Piece(Piece.PYRAMID_STR);
 		pyr2 = pyr1.computeNextRotation();
@@ -30,6 +30,12 @@ public class BoardTest {
 		b.place(pyr1, 0, 0);
 	}
 
+	// Creates the board implementation under test;
+	// subclasses override this to run the suite on other boards.
+	protected BoardAPI newBoard(int width, int height) {
+		return new Board(width, height);
+	}
+
 	// Check the basic width/height/max after the one placement
 	@Test
 	public void testSample1() {
@@ -56,11 +62,11 @@ public class BoardTest {
 	}
 
 
-	private Board board;
+	private BoardAPI board;
 
 	@Test
 	public void testUndo() {
-		board = new Board(5, 5);
+		board = newBoard(5, 5);
 		int res = board.place(pyr1, 3, 0);
 		assertEquals(Board.PLACE_OUT_BOUNDS, res);
 		board.undo();
@@ -81,7 +87,7 @@ public class BoardTest {
 
 	@Test
 	public void test1() {
-		board = new Board(4, 8);
+		board = newBoard(4, 8);
 		int res = board.place(pyr1, 0, 0);
 		assertEquals(Board.PLACE_OK, res);
 		board.commit();
@@ -152,7 +158,7 @@ public class BoardTest {
 
 	@Test
 	public void test2() {
-		board = new Board(5, 10);
+		board = newBoard(5, 10);
 		board.place(pyr2, 0, 0);
 		board.commit();
 		board.place(new Piece(Piece.STICK_STR), 2, 0);
@@ -185,7 +191,7 @@ public class BoardTest {
 
 	@Test
 	public void test3() {
-		board = new Board(4, 8);
+		board = newBoard(4, 8);
 		board.place(new Piece(Piece.L2_STR), 1, 0);
 		board.commit();
 		int res = board.place(pyr4, 1, 2);
@@ -247,7 +253,7 @@ public class BoardTest {
 
 	@Test
 	public void test4() {
-		board = new Board(10, 24);
+		board = newBoard(10, 24);
 		Piece p = new Piece("0 0  1 0  1 1  2 1");
 		int res = board.place(p, 3, 22);
 		assertEquals(0, res);
@@ -270,4 +276,50 @@ public class BoardTest {
 
 	}
 
+	@Test
+	public void testPlacements() {
+		PlacementTable table = PlacementTable.forWidth(4);
+		assertEquals(table, PlacementTable.forWidth(4));
+		Piece pyramid = Piece.getPieces()[Piece.PYRAMID];
+		Placement[] placements = table.get(pyramid);
+		assertEquals(2, placements.length);
+		assertEquals(1, placements[1].getX());
+		assertEquals(3, table.get(pyramid.fastRotation()).length);
+
+		board = newBoard(4, 8);
+		board.place(pyr1, 0, 0);
+		board.commit();
+		Placement p = table.get(pyramid.fastRotation())[2];
+		assertEquals(board.dropHeight(pyramid.fastRotation(), 2), board.dropHeight(p));
+		assertEquals(Board.PLACE_ROW_FILLED, board.place(p, board.dropHeight(p)));
+		assertEquals(4, board.getRowWidth(0));
+		assertEquals(3, board.getColumnHeight(3));
+		board.undo();
+		assertEquals(Board.PLACE_BAD, board.place(table.get(pyramid)[0], 1));
+		board.undo();
+		assertEquals(Board.PLACE_OUT_BOUNDS, board.place(table.get(pyramid)[0], -1));
+		board.undo();
+		assertEquals(0, board.getColumnHeight(3));
+		assertEquals(2, board.getMaxHeight());
+	}
+
+	@Test
+	public void testDropHeights() {
+		board = newBoard(4, 8);
+		board.place(new Piece(Piece.L2_STR), 1, 0);
+		board.commit();
+		int[] heights = new int[4];
+		assertEquals(2, board.dropHeights(s, heights));
+		assertEquals(board.dropHeight(s, 0), heights[0]);
+		assertEquals(board.dropHeight(s, 1), heights[1]);
+		assertEquals(3, board.dropHeights(pyr2, heights));
+		for (int x = 0; x < 3; x++)
+			assertEquals(board.dropHeight(pyr2, x), heights[x]);
+		assertEquals(4, board.dropHeights(new Piece(Piece.STICK_STR), heights));
+		assertEquals(0, heights[0]);
+		assertEquals(3, heights[2]);
+		assertEquals(1, board.dropHeights(new Piece(Piece.STICK_STR).computeNextRotation(), heights));
+		assertEquals(3, heights[0]);
+	}
+
 }
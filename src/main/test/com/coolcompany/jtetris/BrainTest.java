@@ -0,0 +1,629 @@
+package com.coolcompany.jtetris;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BrainTest {
+
+	// Plays a game with the reference brain, checking the other one picks the same move each time
+	private void assertSameMoves(Brain brain) {
+		DefaultBrain reference = new DefaultBrain();
+		Piece[] pieces = Piece.getPieces();
+		Random random = new Random(7);
+		Board board = new Board(10, 24);
+		for (int i = 0; i < 200; i++) {
+			Piece piece = pieces[random.nextInt(pieces.length)];
+			Move expected = reference.bestMove(board, piece, 20, null);
+			Move actual = brain.bestMove(board, piece, 20, null);
+			if (expected == null) {
+				assertNull(actual);
+				return;
+			}
+			assertNotNull(actual);
+			assertEquals(expected.x, actual.x);
+			assertEquals(expected.y, actual.y);
+			assertSame(expected.piece, actual.piece);
+			assertEquals(expected.score, actual.score, 0.0);
+
+			board.place(actual.piece, actual.x, actual.y);
+			board.clearRows();
+			board.commit();
+		}
+	}
+
+	@Test
+	public void testParallelBrain() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			assertSameMoves(new ParallelBrain(pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testLookaheadBrain() {
+		assertSameMoves(new LookaheadBrain());    // no next piece -- plays like DefaultBrain
+
+		// with no pruning the pair search matches a brute force over copies
+		Piece[] pieces = Piece.getPieces();
+		Board board = new Board(8, 24);
+		board.place(pieces[Piece.STICK].fastRotation(), 0, 0);
+		board.commit();
+		board.place(pieces[Piece.L1], 5, 0);
+		board.commit();
+		LookaheadBrain brain = new LookaheadBrain(1000);
+		brain.setNextPieces(pieces[Piece.S2], pieces[Piece.SQUARE]);
+		assertEquals(2, brain.getNextPieces().length);
+		Move move = brain.bestMove(board, pieces[Piece.PYRAMID], 20, null);
+
+		DefaultBrain single = new DefaultBrain();
+		double best = 1e20;
+		Piece first = pieces[Piece.PYRAMID];
+		do {
+			for (int x = 0; x + first.getWidth() <= board.getWidth(); x++) {
+				Board copy = new Board(board);
+				if (copy.place(first, x, copy.dropHeight(first, x)) > Board.PLACE_ROW_FILLED) continue;
+				copy.clearRows();
+				copy.commit();
+				Move second = single.bestMove(copy, pieces[Piece.S2], 20, null);
+				if (second != null) best = Math.min(best, second.score);
+			}
+			first = first.fastRotation();
+		} while (first != pieces[Piece.PYRAMID]);
+		assertEquals(best, move.score, 0.0);
+		assertEquals(0, board.getSnapshotDepth());
+		assertEquals(3, board.getMaxHeight());
+	}
+
+	@Test
+	public void testBeamBrain() {
+		assertSameMoves(new BeamBrain());    // no next pieces -- plays like DefaultBrain
+
+		Piece[] pieces = Piece.getPieces();
+		Board board = new Board(8, 24);
+		board.place(pieces[Piece.STICK].fastRotation(), 0, 0);
+		board.commit();
+		board.place(pieces[Piece.L1], 5, 0);
+		board.commit();
+
+		// a beam wide enough to keep everything is the full two piece search
+		BeamBrain beam = new BeamBrain(1000, 2);
+		beam.setNextPieces(pieces[Piece.S2], pieces[Piece.SQUARE]);
+		LookaheadBrain lookahead = new LookaheadBrain(1000);
+		lookahead.setNextPieces(pieces[Piece.S2]);
+		Move expected = lookahead.bestMove(board, pieces[Piece.PYRAMID], 20, null);
+		Move actual = beam.bestMove(board, pieces[Piece.PYRAMID], 20, null);
+		assertEquals(expected.score, actual.score, 0.0);
+
+		// a deeper, narrow beam still returns a play of the current piece
+		beam = new BeamBrain(4, 3);
+		beam.setNextPieces(pieces[Piece.S2], pieces[Piece.SQUARE]);
+		actual = beam.bestMove(board, pieces[Piece.PYRAMID], 20, null);
+		assertEquals(Piece.PYRAMID, actual.piece.getSet().root(actual.piece.getId()));
+		assertEquals(actual.y, board.dropHeight(actual.piece, actual.x));
+		assertEquals(3, board.getMaxHeight());
+	}
+
+	// Expected best rating over every next piece, by brute force on copies
+	private double expectedScore(Board board, Piece piece) {
+		DefaultBrain single = new DefaultBrain();
+		double best = 1e20;
+		Piece current = piece;
+		do {
+			for (int x = 0; x + current.getWidth() <= board.getWidth(); x++) {
+				Board copy = new Board(board);
+				if (copy.place(current, x, copy.dropHeight(current, x)) > Board.PLACE_ROW_FILLED) continue;
+				copy.clearRows();
+				copy.commit();
+				double sum = 0;
+				for (Piece next : Piece.getPieces())
+					sum += single.bestMove(copy, next, 20, null).score;
+				best = Math.min(best, sum / Piece.getPieces().length);
+			}
+			current = current.fastRotation();
+		} while (current != piece);
+		return best;
+	}
+
+	@Test
+	public void testExpectimaxBrain() {
+		assertSameMoves(new ExpectimaxBrain(0, 4));    // no lookahead -- plays like DefaultBrain
+
+		Piece[] pieces = Piece.getPieces();
+		Board board = new Board(7, 24);
+		board.place(pieces[Piece.STICK].fastRotation(), 0, 0);
+		board.commit();
+		board.place(pieces[Piece.L1], 4, 0);
+		board.commit();
+
+		ExpectimaxBrain brain = new ExpectimaxBrain();
+		Move move = brain.bestMove(board, pieces[Piece.S1], 20, null);
+		assertEquals(expectedScore(board, pieces[Piece.S1]), move.score, 1e-9);
+		assertEquals(0, board.getSnapshotDepth());
+		assertEquals(3, board.getMaxHeight());
+
+		// a second search answers from the table, and must agree
+		Move again = brain.bestMove(board, pieces[Piece.S1], 20, null);
+		assertEquals(move.x, again.x);
+		assertSame(move.piece, again.piece);
+		assertEquals(move.score, again.score, 0.0);
+	}
+
+	@Test
+	public void testMonteCarloBrain() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			// zero length rollouts just rate the play -- same as DefaultBrain
+			MonteCarloBrain brain = new MonteCarloBrain(pool, 0);
+			brain.setRolloutBudget(100);
+			assertSameMoves(brain);
+
+			Piece[] pieces = Piece.getPieces();
+			Board board = new Board(10, 24);
+			board.place(pieces[Piece.STICK].fastRotation(), 0, 0);
+			board.commit();
+			long hash = board.getHash();
+
+			brain = new MonteCarloBrain(pool, 3);
+			brain.setRolloutBudget(500);
+			brain.setTimeBudget(1000000000L);
+			brain.setSeed(1);
+			Move move = brain.bestMove(board, pieces[Piece.SQUARE], 20, null);
+			assertEquals(move.y, board.dropHeight(move.piece, move.x));
+			assertEquals(hash, board.getHash());
+
+			// same seed, same budget, same pool -- same answer
+			brain.setSeed(1);
+			Move again = brain.bestMove(board, pieces[Piece.SQUARE], 20, null);
+			assertEquals(move.x, again.x);
+			assertEquals(move.score, again.score, 0.0);
+
+			// ratings past TOPPED_OUT are still ratings, not top-outs
+			MonteCarloBrain shifted = new MonteCarloBrain(pool, 3) {
+				@Override
+				public double ratePlay(Board board, Piece piece, int x, int y, boolean filled) {
+					return super.ratePlay(board, piece, x, y, filled) + 2 * TOPPED_OUT;
+				}
+			};
+			shifted.setRolloutBudget(500);
+			shifted.setTimeBudget(1000000000L);
+			shifted.setSeed(1);
+			Move high = shifted.bestMove(board, pieces[Piece.SQUARE], 20, null);
+			assertEquals(move.x, high.x);
+			assertSame(move.piece, high.piece);
+			assertEquals(move.score + 2 * MonteCarloBrain.TOPPED_OUT, high.score, 1e-6);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testAnytimeBrain() {
+		AnytimeBrain brain = new AnytimeBrain();
+		brain.setTimeBudget(0);
+		assertSameMoves(brain);    // no time to look ahead -- plays like DefaultBrain
+		assertEquals(0, brain.getLastDepth());
+
+		Piece[] pieces = Piece.getPieces();
+		Board board = new Board(7, 24);
+		board.place(pieces[Piece.STICK].fastRotation(), 0, 0);
+		board.commit();
+		board.place(pieces[Piece.L1], 4, 0);
+		board.commit();
+
+		// plenty of time -- the deepest search is the expectimax answer
+		brain = new AnytimeBrain(1, 16);
+		brain.setTimeBudget(60000000000L);
+		Move move = brain.bestMove(board, pieces[Piece.S1], 20, null);
+		assertEquals(1, brain.getLastDepth());
+		assertEquals(expectedScore(board, pieces[Piece.S1]), move.score, 1e-9);
+
+		// a search far too deep for the deadline still answers on time
+		brain = new AnytimeBrain(6, 16);
+		long start = System.nanoTime();
+		move = brain.bestMove(board, pieces[Piece.S1], 20, null, start + 20000000L);
+		long elapsed = System.nanoTime() - start;
+		assertNotNull(move);
+		assertTrue(brain.getLastDepth() < 6);
+		assertTrue("took " + elapsed + "ns", elapsed < 500000000L);
+		assertEquals(0, board.getSnapshotDepth());
+		assertEquals(3, board.getMaxHeight());
+	}
+
+	@Test
+	public void testInterruptedSearch() {
+		Piece[] pieces = Piece.getPieces();
+		Board board = new Board(10, 24);
+		board.place(pieces[Piece.STICK].fastRotation(), 0, 0);
+		board.commit();
+
+		LookaheadBrain lookahead = new LookaheadBrain();
+		lookahead.setNextPieces(pieces[Piece.SQUARE]);
+		BeamBrain beam = new BeamBrain(4, 2);
+		beam.setNextPieces(pieces[Piece.SQUARE]);
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			Brain[] brains = {new DefaultBrain(), new ParallelBrain(pool), lookahead, beam,
+					new ExpectimaxBrain(), new AnytimeBrain(), new MonteCarloBrain(pool, 1)};
+			for (Brain brain : brains) {
+				// neither a move nor null: the search never got to the end
+				Thread.currentThread().interrupt();
+				try {
+					brain.bestMove(board, pieces[Piece.L1], 20, null);
+					fail(brain.getClass().getSimpleName() + " finished interrupted");
+				} catch (CancellationException e) {
+				} finally {
+					Thread.interrupted();
+				}
+				assertNotNull(brain.bestMove(board, pieces[Piece.L1], 20, null));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testBrainWorker() throws Exception {
+		Piece[] pieces = Piece.getPieces();
+		Board board = new Board(10, 24);
+		board.place(pieces[Piece.STICK].fastRotation(), 0, 0);
+		board.commit();
+		Move expected = new DefaultBrain().bestMove(board, pieces[Piece.L2], 20, null);
+
+		BrainWorker worker = new BrainWorker();
+		try {
+			assertFalse(worker.isDone());
+			worker.start(new DefaultBrain(), board, pieces[Piece.L2], 20);
+			board.place(pieces[Piece.SQUARE], 8, 0);    // the worker has its own copy
+			board.commit();
+			while (!worker.isDone()) Thread.sleep(1);
+
+			Move move = new Move();
+			assertTrue(worker.getMove(move));
+			assertEquals(expected.x, move.x);
+			assertEquals(expected.y, move.y);
+			assertSame(expected.piece, move.piece);
+
+			worker.cancel();
+			assertFalse(worker.isDone());
+		} finally {
+			worker.shutdown();
+		}
+	}
+
+	@Test
+	public void testBrainWorkerCancel() throws Exception {
+		Piece[] pieces = Piece.getPieces();
+		final AtomicInteger plays = new AtomicInteger();
+		// rates a play a millisecond, millions of them deep
+		Brain slow = new ExpectimaxBrain(3, 4) {
+			@Override
+			public double ratePlay(Board board, Piece piece, int x, int y, boolean filled) {
+				plays.incrementAndGet();
+				LockSupport.parkNanos(1000000);
+				return super.ratePlay(board, piece, x, y, filled);
+			}
+		};
+		Board board = new Board(10, 24);
+
+		BrainWorker worker = new BrainWorker();
+		try {
+			worker.start(slow, board, pieces[Piece.STICK], 20);
+			while (plays.get() == 0) Thread.sleep(1);
+			worker.cancel();
+
+			// the running search gives up, so the next one gets the thread
+			worker.start(new DefaultBrain(), board, pieces[Piece.SQUARE], 20);
+			long deadline = System.nanoTime() + 5000000000L;
+			while (!worker.isDone() && System.nanoTime() < deadline) Thread.sleep(1);
+			assertTrue(worker.isDone());
+			int count = plays.get();
+			Thread.sleep(20);
+			assertEquals(count, plays.get());
+		} finally {
+			worker.shutdown();
+		}
+	}
+
+	@Test
+	public void testSpeculation() throws Exception {
+		Piece[] pieces = Piece.getPieces();
+		DefaultBrain brain = new DefaultBrain();
+		Board board = new Board(10, 24);
+		board.place(pieces[Piece.STICK].fastRotation(), 0, 0);
+		board.commit();
+		Move move = brain.bestMove(board, pieces[Piece.SQUARE], 20, null);
+
+		BrainWorker worker = new BrainWorker();
+		try {
+			worker.speculate(brain, board, move, 20);
+			assertFalse(worker.hasSpeculation(board));
+			assertNull(worker.getSpeculation(board));    // not the landed board
+
+			board.place(move.piece, move.x, move.y);
+			board.clearRows();
+			board.commit();
+			assertTrue(worker.hasSpeculation(board));    // finished or not
+			Move[] moves;
+			while ((moves = worker.getSpeculation(board)) == null) Thread.sleep(1);
+			assertEquals(pieces.length, moves.length);
+			for (int i = 0; i < pieces.length; i++) {
+				Move expected = brain.bestMove(board, pieces[i], 20, null);
+				assertEquals(expected.x, moves[i].x);
+				assertEquals(expected.y, moves[i].y);
+				assertSame(expected.piece, moves[i].piece);
+			}
+
+			worker.cancelSpeculation();
+			assertFalse(worker.hasSpeculation(board));
+			assertNull(worker.getSpeculation(board));
+		} finally {
+			worker.shutdown();
+		}
+	}
+
+	@Test
+	public void testAdversary() {
+		final AtomicInteger searches = new AtomicInteger();
+		DefaultBrain brain = new DefaultBrain() {
+			@Override
+			public Move bestMove(Board board, Piece piece, int limitHeight, Move move) {
+				searches.incrementAndGet();
+				return super.bestMove(board, piece, limitHeight, move);
+			}
+		};
+		Piece[] pieces = Piece.getPieces();
+		Board board = new Board(10, 24);
+		board.place(pieces[Piece.STICK].fastRotation(), 0, 0);
+		board.commit();
+		board.place(pieces[Piece.S1], 5, 0);
+		board.commit();
+
+		// the piece whose best play scores worst, first one on a tie
+		int expected = 0;
+		double worst = -1;
+		for (int i = 0; i < pieces.length; i++) {
+			Move move = new DefaultBrain().bestMove(board, pieces[i], 20, null);
+			if (move.score > worst) {
+				worst = move.score;
+				expected = i;
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			Adversary adversary = new Adversary(brain, 20, pool, 2);
+			assertEquals(expected, adversary.pick(board));
+			assertEquals(pieces.length, searches.get());
+			assertEquals(expected, adversary.pick(board));    // cached
+			assertEquals(pieces.length, searches.get());
+
+			// a new board is searched, and the oldest is forgotten past the cache size
+			Board other = new Board(10, 24);
+			adversary.pick(other);
+			other.place(pieces[Piece.SQUARE], 0, 0);
+			other.commit();
+			adversary.pick(other);
+			assertEquals(3 * pieces.length, searches.get());
+			adversary.pick(board);
+			assertEquals(4 * pieces.length, searches.get());
+
+			assertEquals(0, Adversary.worstPiece(new Move[pieces.length]));
+
+			// an interrupted pick is not a choice, and is not cached as one
+			Adversary interrupted = new Adversary(brain, 20, pool, 2);
+			Thread.currentThread().interrupt();
+			try {
+				interrupted.pick(board);
+				fail("interrupted pick finished");
+			} catch (CancellationException e) {
+			} finally {
+				Thread.interrupted();
+			}
+			assertEquals(expected, interrupted.pick(board));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	// Plain minimax by brute force on copies: adversary maximises, brain minimises
+	private double minimax(Board board, int depth) {
+		double worst = Double.NEGATIVE_INFINITY;
+		for (Piece piece : Piece.getPieces()) worst = Math.max(worst, brainValue(board, piece, depth));
+		return worst;
+	}
+
+	private double brainValue(Board board, Piece piece, int depth) {
+		double best = 1e20;
+		Piece current = piece;
+		do {
+			for (int x = 0; x + current.getWidth() <= board.getWidth(); x++) {
+				int y = board.dropHeight(current, x);
+				if (y >= 20 - current.getHeight() + 1) continue;
+				Board copy = new Board(board);
+				if (copy.place(current, x, y) > Board.PLACE_ROW_FILLED) continue;
+				copy.clearRows();
+				copy.commit();
+				double value = (depth == 1) ? new DefaultBrain().rateBoard(copy) : minimax(copy, depth - 1);
+				best = Math.min(best, value);
+			}
+			current = current.fastRotation();
+		} while (current != piece);
+		return best;
+	}
+
+	@Test
+	public void testMinimaxAdversary() {
+		Piece[] pieces = Piece.getPieces();
+		Board board = new Board(6, 24);
+		board.place(pieces[Piece.STICK].fastRotation(), 0, 0);
+		board.commit();
+		board.place(pieces[Piece.SQUARE], 4, 1);
+		board.commit();
+
+		DefaultBrain brain = new DefaultBrain();
+		assertEquals(new Adversary(brain, 20).pick(board), new MinimaxAdversary(brain, 20, 1, 4).pick(board));
+
+		MinimaxAdversary adversary = new MinimaxAdversary(brain, 20, 2, 12);
+		int pick = adversary.pick(board);
+		double expected = minimax(board, 2);
+		assertEquals(expected, brainValue(board, pieces[pick], 2), 0.0);
+		assertEquals(3, board.getMaxHeight());    // the board is left alone
+		assertEquals(0, board.getSnapshotDepth());
+
+		// an interrupted search gives up, and nothing it half worked out is kept
+		MinimaxAdversary interrupted = new MinimaxAdversary(brain, 20, 2, 12);
+		Thread.currentThread().interrupt();
+		try {
+			interrupted.pick(board);
+			fail("interrupted search finished");
+		} catch (CancellationException e) {
+		} finally {
+			Thread.interrupted();
+		}
+		assertEquals(pick, interrupted.pick(board));
+	}
+
+	@Test
+	public void testAdversaryPick() throws Exception {
+		final AtomicInteger searches = new AtomicInteger();
+		DefaultBrain brain = new DefaultBrain() {
+			@Override
+			public Move bestMove(Board board, Piece piece, int limitHeight, Move move) {
+				searches.incrementAndGet();
+				return super.bestMove(board, piece, limitHeight, move);
+			}
+		};
+		Piece[] pieces = Piece.getPieces();
+		Board board = new Board(10, 24);
+		board.place(pieces[Piece.STICK].fastRotation(), 0, 0);
+		board.commit();
+
+		BrainWorker worker = new BrainWorker();
+		try {
+			assertFalse(worker.isPickDone());
+			worker.startPick(new Adversary(brain, 20), board);
+			while (!worker.isPickDone()) Thread.sleep(1);
+			assertEquals(new Adversary(new DefaultBrain(), 20).pick(board), worker.getPick());
+			assertEquals(pieces.length, searches.get());
+
+			// a speculation on the board saves the pick its searches
+			Move move = new DefaultBrain().bestMove(board, pieces[Piece.SQUARE], 20, null);
+			worker.speculate(brain, board, move, 20);
+			board.place(move.piece, move.x, move.y);
+			board.clearRows();
+			board.commit();
+			worker.startPick(new Adversary(brain, 20), board);
+			while (!worker.isPickDone()) Thread.sleep(1);
+			assertEquals(new Adversary(new DefaultBrain(), 20).pick(board), worker.getPick());
+			assertEquals(2 * pieces.length, searches.get());
+
+			worker.cancelPick();
+			assertFalse(worker.isPickDone());
+		} finally {
+			worker.shutdown();
+		}
+	}
+
+	@Test
+	public void testWeightedBrain() {
+		assertSameMoves(new WeightedBrain());    // default weights -- plays like DefaultBrain
+
+		// a brain that only cares about clearing rows takes the clear
+		double[] weights = new double[Evaluator.FEATURE_COUNT];
+		weights[Evaluator.ERODED_CELLS] = -1;
+		Brain brain = new WeightedBrain(new Evaluator(weights));
+		Piece[] pieces = Piece.getPieces();
+		Board board = new Board(4, 24);
+		board.place(pieces[Piece.SQUARE], 0, 0);
+		board.commit();
+		Move move = brain.bestMove(board, pieces[Piece.SQUARE], 20, null);
+		assertEquals(2, move.x);
+		assertEquals(-8, move.score, 0.0);
+		assertEquals(2, board.getMaxHeight());
+	}
+
+	@Test
+	public void testSearchesRatePlays() {
+		// landing height and eroded cells only exist for a play, so a
+		// search that rated bare boards would score every leaf 0
+		double[] weights = new double[Evaluator.FEATURE_COUNT];
+		weights[Evaluator.LANDING_HEIGHT] = 1;
+		weights[Evaluator.ERODED_CELLS] = -10;
+		final Evaluator evaluator = new Evaluator(weights);
+		Piece[] pieces = Piece.getPieces();
+		Board board = new Board(4, 24);
+		for (int x = 0; x < 3; x++) {
+			board.place(pieces[Piece.STICK], x, 0);
+			board.commit();
+		}
+
+		// the stick down the gap lands at 1.5 and erodes 4 rows x 4 blocks
+		Move move = new WeightedBrain(evaluator).bestMove(board, pieces[Piece.STICK], 20, null);
+		assertEquals(3, move.x);
+		assertEquals(1.5 - 160, move.score, 0.0);
+
+		DefaultBrain expectimax = new ExpectimaxBrain(0, 4) {
+			@Override
+			public double ratePlay(Board board, Piece piece, int x, int y, boolean filled) {
+				return evaluator.rate(board, piece, x, y, filled);
+			}
+		};
+		DefaultBrain beam = new BeamBrain(4, 1) {
+			@Override
+			public double ratePlay(Board board, Piece piece, int x, int y, boolean filled) {
+				return evaluator.rate(board, piece, x, y, filled);
+			}
+		};
+		ForkJoinPool pool = new ForkJoinPool(2);
+		MonteCarloBrain monteCarlo = new MonteCarloBrain(pool, 0) {
+			@Override
+			public double ratePlay(Board board, Piece piece, int x, int y, boolean filled) {
+				return evaluator.rate(board, piece, x, y, filled);
+			}
+		};
+		monteCarlo.setRolloutBudget(1);    // just the first round -- one rollout per play
+		try {
+			for (DefaultBrain brain : new DefaultBrain[]{expectimax, beam, monteCarlo}) {
+				move = brain.bestMove(board, pieces[Piece.STICK], 20, null);
+				assertEquals(3, move.x);
+				assertEquals(1.5 - 160, move.score, 0.0);
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		// clearing first leaves the square an empty board to land at 0.5 on
+		LookaheadBrain lookahead = new LookaheadBrain() {
+			@Override
+			public double ratePlay(Board board, Piece piece, int x, int y, boolean filled) {
+				return evaluator.rate(board, piece, x, y, filled);
+			}
+		};
+		lookahead.setNextPieces(pieces[Piece.SQUARE]);
+		move = lookahead.bestMove(board, pieces[Piece.STICK], 20, null);
+		assertEquals(3, move.x);
+		assertEquals(0.5, move.score, 0.0);
+
+		// one round deep, the deep adversary agrees with the plain one
+		DefaultBrain weighted = new WeightedBrain(evaluator);
+		int expected = new Adversary(weighted, 20).pick(board);
+		assertTrue(expected != Piece.STICK);
+		assertEquals(expected, new MinimaxAdversary(weighted, 20, 1, 4).pick(board));
+		assertEquals(4, board.getMaxHeight());
+	}
+}
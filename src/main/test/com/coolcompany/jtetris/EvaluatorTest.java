@@ -0,0 +1,102 @@
+package com.coolcompany.jtetris;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class EvaluatorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final Piece[] pieces = Piece.getPieces();
+
+	@Test
+	public void testFeatures() {
+		// + ++
+		// + ++
+		// ++
+		Board board = new Board(4, 8);
+		board.place(pieces[Piece.L1], 0, 0);
+		board.commit();
+		board.place(pieces[Piece.SQUARE], 2, 1);
+		board.commit();
+
+		double[] features = new double[Evaluator.FEATURE_COUNT];
+		double[] weights = new double[Evaluator.FEATURE_COUNT];
+		Arrays.fill(weights, 1);
+		double score = new Evaluator(weights).features(board, features);
+		assertArrayEquals(new double[]{3, 2.5, 2, 4, 2, 6, 8, 0, 0}, features, 0.0);
+		assertEquals(27.5, score, 0.0);
+	}
+
+	@Test
+	public void testPlayFeatures() {
+		Board board = new Board(4, 8);
+		board.place(pieces[Piece.SQUARE], 0, 0);
+		board.commit();
+
+		double[] weights = new double[Evaluator.FEATURE_COUNT];
+		weights[Evaluator.LANDING_HEIGHT] = 1;
+		weights[Evaluator.ERODED_CELLS] = -1;
+		Evaluator evaluator = new Evaluator(weights);
+
+		// the second square fills both rows: 2 rows x 4 of its blocks
+		assertEquals(Board.PLACE_ROW_FILLED, board.place(pieces[Piece.SQUARE], 2, 0));
+		double[] features = new double[Evaluator.FEATURE_COUNT];
+		assertEquals(0.5 - 8, evaluator.features(board, pieces[Piece.SQUARE], 2, 0, true, features), 0.0);
+		assertArrayEquals(new double[]{0, 0, 0, 0, 0, 0, 4, 0.5, 8}, features, 0.0);
+		assertEquals(0, board.getMaxHeight());    // the rows were cleared
+		board.undo();
+		assertEquals(2, board.getMaxHeight());
+
+		// a play that fills nothing erodes nothing
+		board.place(pieces[Piece.STICK], 3, 0);
+		assertEquals(1.5, evaluator.rate(board, pieces[Piece.STICK], 3, 0, false), 0.0);
+	}
+
+	@Test
+	public void testDefaults() {
+		Board board = new Board(10, 24);
+		board.place(pieces[Piece.PYRAMID], 0, 0);
+		board.commit();
+		board.place(pieces[Piece.S1], 4, 1);
+		board.commit();
+		assertEquals(new DefaultBrain().rateBoard(board), Evaluator.defaults().rate(board), 0.0);
+	}
+
+	@Test
+	public void testLoad() throws Exception {
+		File file = folder.newFile("weights.properties");
+		Files.write(file.toPath(), "# tuned\nholes = 7.5\nerodedCells=-2\n".getBytes(StandardCharsets.UTF_8));
+		Evaluator evaluator = Evaluator.load(file.toPath());
+		assertEquals(7.5, evaluator.getWeight(Evaluator.HOLES), 0.0);
+		assertEquals(-2, evaluator.getWeight(Evaluator.ERODED_CELLS), 0.0);
+		assertEquals(0, evaluator.getWeight(Evaluator.MAX_HEIGHT), 0.0);
+
+		Properties config = new Properties();
+		config.setProperty("holez", "1");
+		try {
+			Evaluator.fromProperties(config);
+			fail("unknown feature accepted");
+		} catch (IllegalArgumentException expected) {
+		}
+		config.clear();
+		config.setProperty("holes", "lots");
+		try {
+			Evaluator.fromProperties(config);
+			fail("bad weight accepted");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+}
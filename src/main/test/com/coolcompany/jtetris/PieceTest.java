@@ -1,9 +1,17 @@
 package com.coolcompany.jtetris;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -155,4 +163,133 @@ public class PieceTest {
 		assertTrue(pr.equals(Piece.getPieces()[Piece.PYRAMID].computeNextRotation()));
 	}
 
+	@Test
+	public void testPieceSet() {
+		PieceSet set = PieceSet.standard();
+		assertEquals(7, set.pieceCount());
+		assertEquals(19, set.size());
+		Piece[] pieces = Piece.getPieces();
+		for (int i = 0; i < pieces.length; i++) {
+			assertEquals(set.firstId(i), pieces[i].getId());
+			assertEquals(i, set.root(pieces[i].getId()));
+		}
+		for (int id = 0; id < set.size(); id++) {
+			Piece piece = set.get(id);
+			assertEquals(id, piece.getId());
+			assertTrue(set.contains(piece));
+			assertEquals(piece.fastRotation().getId(), set.next(id));
+		}
+		assertEquals(0, set.rotation(pieces[Piece.L1].getId()));
+		assertEquals(3, set.rotation(pieces[Piece.L1].fastRotation().fastRotation().fastRotation().getId()));
+		assertEquals(pieces[Piece.SQUARE].getId(), set.next(pieces[Piece.SQUARE].getId()));
+		assertEquals(-1, pyr1.getId());
+		assertFalse(set.contains(pyr1));
+	}
+
+	@Test
+	public void testHashCode() {
+		Piece body = new Piece("0 0  1 0  2 0  1 1");
+		Piece reordered = new Piece("1 1  2 0  0 0  1 0");
+		assertTrue(body.equals(reordered));
+		assertEquals(body.hashCode(), reordered.hashCode());
+		assertEquals(pyr1.hashCode(), pyr4.computeNextRotation().hashCode());
+		assertFalse(pyr1.equals(pyr2));
+		assertFalse(s.equals(new Piece(Piece.S2_STR)));
+		assertFalse(new Piece("0 0  0 1").equals(new Piece("0 0  0 1  0 2")));
+
+		Set<Piece> seen = new HashSet<Piece>();
+		for (Piece root : Piece.getPieces()) {
+			Piece rotation = root;
+			do {
+				assertTrue(seen.add(rotation));
+				rotation = rotation.fastRotation();
+			} while (rotation != root);
+		}
+		assertEquals(19, seen.size());
+		assertTrue(seen.contains(pyr3));
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testLoadPieceSet() throws Exception {
+		File file = folder.newFile("pentominoes.txt");
+		Files.write(file.toPath(), Arrays.asList(
+				"# a few pentominoes",
+				"0 0  0 1  0 2  0 3  0 4",    // I
+				"",
+				"0 1  1 0  1 1  1 2  2 1",    // X
+				"0 0  1 0  1 1  1 2  2 2"),   // Z
+				StandardCharsets.UTF_8);
+
+		PieceSet set = PieceSet.load(file.toPath());
+		assertEquals(3, set.pieceCount());
+		assertEquals(2 + 1 + 2, set.size());
+		Piece i = set.get(set.firstId(0));
+		assertEquals(5, i.getHeight());
+		assertEquals(5, i.fastRotation().getWidth());
+		assertTrue(Arrays.equals(new int[]{0, 0, 0, 0, 0}, i.fastRotation().getSkirt()));
+		Piece x = set.get(set.firstId(1));
+		assertSame(x, x.fastRotation());
+		assertTrue(Arrays.equals(new int[]{1, 0, 1}, x.getSkirt()));
+		assertSame(set, x.getSet());
+		assertTrue(new File(file.getPath() + ".cache").isFile());
+
+		// second load comes from the cache, and matches
+		PieceSet cached = PieceSet.load(file.toPath());
+		assertEquals(set.size(), cached.size());
+		for (int id = 0; id < set.size(); id++) {
+			assertTrue(set.get(id).equals(cached.get(id)));
+			assertTrue(Arrays.equals(set.get(id).getSkirt(), cached.get(id).getSkirt()));
+			assertEquals(set.next(id), cached.next(id));
+		}
+
+		// the placement tables and brain work on the new set
+		Board board = new Board(10, 24);
+		assertEquals(6, PlacementTable.forPiece(i.fastRotation(), 10).get(i.fastRotation()).length);
+		Move move = new DefaultBrain().bestMove(board, set.get(set.firstId(2)), 20, null);
+		assertSame(set, move.getPiece().getSet());
+		assertEquals(0, move.getY());
+	}
+
+	@Test
+	public void testLoadOffsetBody() throws Exception {
+		File file = folder.newFile("offset.txt");
+		Files.write(file.toPath(), Arrays.asList("1 0  1 1  1 2  1 3", "2 3  3 3  2 4  3 4"),
+				StandardCharsets.UTF_8);
+
+		// shifted to the origin, so it plays like the standard pieces
+		PieceSet set = PieceSet.load(file.toPath(), null);
+		Piece stick = set.get(set.firstId(0));
+		assertTrue(stick.equals(Piece.getPieces()[Piece.STICK]));
+		assertTrue(Arrays.equals(new int[]{0}, stick.getSkirt()));
+		assertTrue(stick.fastRotation().equals(Piece.getPieces()[Piece.STICK].fastRotation()));
+		assertTrue(set.get(set.firstId(1)).equals(Piece.getPieces()[Piece.SQUARE]));
+		assertEquals(0, new Board(4, 10).dropHeight(stick.fastRotation(), 0));
+	}
+
+	@Test
+	public void testLoadBadPieces() throws Exception {
+		assertBadPieces("odd number", "0 0  1 0  1");
+		assertBadPieces("not a number", "0 0  1 x");
+		assertBadPieces("joined", "0 0  2 0");
+		assertBadPieces("joined", "0 0  1 1");
+		assertBadPieces("twice", "0 0  1 0  0 0");
+		assertBadPieces("fit", "0 0  1 0  2 0  3 0  4 0  5 0  6 0  7 0  8 0");
+	}
+
+	// Loading a file whose third line is the given one fails, saying why
+	private void assertBadPieces(String why, String line) throws Exception {
+		File file = folder.newFile();
+		Files.write(file.toPath(), Arrays.asList(Piece.SQUARE_STR, "", line), StandardCharsets.UTF_8);
+		try {
+			PieceSet.load(file.toPath(), null);
+			fail("loaded " + line);
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("line 3"));
+			assertTrue(e.getMessage(), e.getMessage().contains(why));
+		}
+	}
+
 }
@@ -0,0 +1,106 @@
+package com.coolcompany.jtetris;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class PositionTest {
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Board board = new Board(10, 24);
+		Piece[] pieces = Piece.getPieces();
+		board.place(pieces[Piece.PYRAMID], 0, 0);
+		board.commit();
+		board.place(pieces[Piece.S1].fastRotation(), 5, 0);
+		board.commit();
+		board.place(pieces[Piece.STICK], 9, 0);
+		board.commit();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PositionWriter out = new PositionWriter(Channels.newChannel(bytes));
+		out.write(new Board(10, 24));
+		out.write(board, pieces[Piece.L2].fastRotation().fastRotation(), 3, -1);
+		out.close();
+		assertEquals(7 + 7 + 5, bytes.size());    // 4 rows of 10 bits take 5 bytes
+
+		PositionReader in = new PositionReader(
+				Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), 4);
+		Position empty = in.read();
+		assertEquals(0, empty.getBoard().getMaxHeight());
+		assertNull(empty.getPiece());
+
+		Position pos = in.read();
+		assertEquals(board, pos.getBoard());
+		assertEquals(board.toString(), pos.getBoard().toString());
+		assertEquals(board.getHoles(), pos.getBoard().getHoles());
+		assertSame(pieces[Piece.L2].fastRotation().fastRotation(), pos.getPiece());
+		assertEquals(3, pos.getX());
+		assertEquals(-1, pos.getY());
+		assertNull(in.read());
+	}
+
+	@Test(expected = EOFException.class)
+	public void testTruncated() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PositionWriter out = new PositionWriter(Channels.newChannel(bytes));
+		Board board = new Board(4, 8);
+		board.place(new Piece(Piece.SQUARE_STR), 0, 0);
+		out.write(board);
+		out.flush();
+		byte[] cut = new byte[bytes.size() - 3];
+		System.arraycopy(bytes.toByteArray(), 0, cut, 0, cut.length);
+		new PositionReader(Channels.newChannel(new ByteArrayInputStream(cut))).read();
+	}
+
+	// Reads one record from bytes, which must be rejected as bad
+	private static void assertBad(int... bytes) throws Exception {
+		byte[] record = new byte[bytes.length];
+		for (int i = 0; i < bytes.length; i++)
+			record[i] = (byte) bytes[i];
+		try {
+			new PositionReader(Channels.newChannel(new ByteArrayInputStream(record))).read();
+			fail("bad record accepted");
+		} catch (EOFException e) {
+			fail("bad record read as cut off");
+		} catch (IOException expected) {
+		}
+	}
+
+	@Test
+	public void testBadRecords() throws Exception {
+		assertBad(0xFF, 0xFF, 0xFF, 0xFF, 0x07, 8, 0, 0, 0, 0, 0);    // width 2^31 - 1
+		assertBad(4, 0xFF, 0xFF, 0xFF, 0xFF, 0x0F, 0, 0, 0, 0, 0);    // height -1
+		assertBad(0, 8, 0, 0, 0, 0, 0);                               // width 0
+		assertBad(4, 8, 0, 8, 0, 0, 0);                               // piece 8 of 7
+		assertBad(4, 8, 0, 1, 4, 0, 0);                               // rotation 4
+	}
+
+	@Test(expected = IOException.class)
+	public void testNonBlocking() throws Exception {
+		ReadableByteChannel idle = new ReadableByteChannel() {
+			public int read(ByteBuffer dst) {
+				return 0;    // a non-blocking channel with nothing to read yet
+			}
+
+			public boolean isOpen() {
+				return true;
+			}
+
+			public void close() {
+			}
+		};
+		new PositionReader(idle).read();
+	}
+}